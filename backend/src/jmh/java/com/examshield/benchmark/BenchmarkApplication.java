@@ -0,0 +1,55 @@
+package com.examshield.benchmark;
+
+import com.examshield.ExamShieldApplication;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Boots the full application against a fresh on-disk SQLite file under
+ * {@code target/jmh-db}, with logging turned down and a random HTTP port.
+ */
+final class BenchmarkApplication {
+
+    private static final Path DATABASE_DIRECTORY = Paths.get("target", "jmh-db");
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String database, Map<String, Object> properties) throws IOException {
+        Files.createDirectories(DATABASE_DIRECTORY);
+        Path file = DATABASE_DIRECTORY.resolve(database + ".db");
+        for (String suffix : List.of("", "-wal", "-shm")) {
+            Files.deleteIfExists(Paths.get(file + suffix));
+        }
+
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("spring.datasource.url", "jdbc:sqlite:" + file);
+        settings.put("server.port", 0);
+        settings.put("logging.level.root", "WARN");
+        settings.put("logging.level.com.examshield", "WARN");
+        settings.put("logging.level.org.hibernate", "WARN");
+        settings.put("logging.level.org.springframework.web", "WARN");
+        settings.put("app.upload.directory", DATABASE_DIRECTORY.resolve("uploads").toString());
+        settings.put("app.evidence.directory", DATABASE_DIRECTORY.resolve("evidence").toString());
+        settings.putAll(properties);
+
+        // Command-line arguments, so they take precedence over application.properties
+        List<String> args = new ArrayList<>();
+        settings.forEach((key, value) -> args.add("--" + key + "=" + value));
+
+        SpringApplication application = new SpringApplication(ExamShieldApplication.class);
+        application.setBannerMode(Banner.Mode.OFF);
+        application.setLogStartupInfo(false);
+        return application.run(args.toArray(new String[0]));
+    }
+}
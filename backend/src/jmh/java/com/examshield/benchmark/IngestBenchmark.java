@@ -0,0 +1,118 @@
+package com.examshield.benchmark;
+
+import com.examshield.dto.CreateSessionRequest;
+import com.examshield.dto.FrameIngestResultDTO;
+import com.examshield.dto.RealTimeDetectionDTO;
+import com.examshield.service.DetectionPersistenceService;
+import com.examshield.service.DetectionService;
+import com.examshield.service.ExamSessionService;
+import com.examshield.service.IngestOverloadedException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DetectionService#processFrames}, the path {@code /process}, {@code /frames} and
+ * STOMP ingest take, end to end against an on-disk SQLite file, with and without
+ * write-behind. Each call submits one frame of {@code detections} detections of different
+ * students plus the hall's head count. Cooldown and multi-frame confirmation are switched
+ * off so every detection takes the accept path: scoring, scoreboard update, broadcast and
+ * persistence. Detections refused by admission control are counted in {@code shed}, not
+ * hidden.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class IngestBenchmark {
+
+    private static final String[] LABELS = {"phone", "Earbuds", "watch", "chit", "book", "notes", "tablet", "leaning"};
+    private static final int PERSONS = 40;
+
+    @Param({"true", "false"})
+    public boolean writeBehind;
+
+    @Param({"4", "16"})
+    public int detections;
+
+    private ConfigurableApplicationContext context;
+    private DetectionService detectionService;
+    private DetectionPersistenceService detectionPersistenceService;
+    private Long sessionId;
+    private int sequence;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long shed;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start("ingest-" + (writeBehind ? "write-behind" : "sync"), Map.of(
+                "app.detection.write-behind.enabled", writeBehind,
+                "app.detection.cooldown-seconds", 0,
+                "app.detection.confirmation.frames", 1,
+                "app.detection.confirmation.required", 1));
+        detectionService = context.getBean(DetectionService.class);
+        detectionPersistenceService = context.getBean(DetectionPersistenceService.class);
+
+        ExamSessionService examSessionService = context.getBean(ExamSessionService.class);
+        sessionId = examSessionService.createSession(CreateSessionRequest.builder()
+                .name("ingest-benchmark")
+                .expectedCount(PERSONS)
+                .build()).getId();
+        examSessionService.startSession(sessionId, null);
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() throws InterruptedException {
+        // Keep one iteration's write-behind backlog out of the next one
+        detectionPersistenceService.awaitFlush(60_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public FrameIngestResultDTO processFrames(Outcomes outcomes) {
+        int frameNumber = sequence++;
+        List<RealTimeDetectionDTO.DetectionResult> results = new ArrayList<>(detections);
+        for (int i = 0; i < detections; i++) {
+            int n = frameNumber * detections + i;
+            results.add(RealTimeDetectionDTO.DetectionResult.builder()
+                    .personId("student_" + n % PERSONS)
+                    .className(LABELS[n % LABELS.length])
+                    .confidence(0.9)
+                    .x(120 + 40 * i)
+                    .y(80)
+                    .width(64)
+                    .height(128)
+                    .build());
+        }
+        RealTimeDetectionDTO frame = RealTimeDetectionDTO.builder()
+                .sessionId(sessionId)
+                .frameNumber(frameNumber)
+                .timestamp(LocalDateTime.now())
+                .detections(results)
+                .headCount(RealTimeDetectionDTO.HeadCountInfo.builder().detected(PERSONS).expected(PERSONS).missing(0).build())
+                .build();
+        try {
+            FrameIngestResultDTO result = detectionService.processFrames(List.of(frame));
+            outcomes.shed += result.getShed();
+            return result;
+        } catch (IngestOverloadedException e) {
+            outcomes.shed += detections;
+            return null;
+        }
+    }
+}
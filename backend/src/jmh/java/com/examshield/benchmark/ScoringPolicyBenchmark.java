@@ -0,0 +1,58 @@
+package com.examshield.benchmark;
+
+import com.examshield.model.DetectionEvent;
+import com.examshield.service.CompiledScoringPolicy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class label resolution and point lookup, the per-detection part of scoring. The
+ * {@code switch} over {@code toLowerCase()} that {@link CompiledScoringPolicy} replaced
+ * is kept as a baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoringPolicyBenchmark {
+
+    private static final String[] LABELS = {
+            "phone", "Mobile", "earbuds", "watch", "CHIT", "book", "notes", "tablet", "head_turned", "person"
+    };
+
+    private final CompiledScoringPolicy policy = CompiledScoringPolicy.BUILT_IN;
+    private int index;
+
+    @Benchmark
+    public DetectionEvent.EventType eventType() {
+        return policy.eventType(nextLabel());
+    }
+
+    @Benchmark
+    public int eventTypeAndPoints() {
+        return (int) (policy.points(policy.eventType(nextLabel())) * 0.9);
+    }
+
+    @Benchmark
+    public DetectionEvent.EventType switchBaseline() {
+        return switch (nextLabel().toLowerCase()) {
+            case "phone", "mobile" -> DetectionEvent.EventType.PHONE_DETECTED;
+            case "earphone", "earbuds", "headphones" -> DetectionEvent.EventType.EARPHONE_DETECTED;
+            case "smartwatch", "watch" -> DetectionEvent.EventType.SMARTWATCH_DETECTED;
+            case "chit", "paper_slip", "chit_slip" -> DetectionEvent.EventType.CHIT_DETECTED;
+            case "textbook", "book" -> DetectionEvent.EventType.TEXTBOOK_DETECTED;
+            case "notebook", "notes" -> DetectionEvent.EventType.NOTEBOOK_DETECTED;
+            case "electronic_device", "tablet" -> DetectionEvent.EventType.ELECTRONIC_DEVICE_DETECTED;
+            default -> DetectionEvent.EventType.INTERACTION_DETECTED;
+        };
+    }
+
+    private String nextLabel() {
+        String label = LABELS[index];
+        index = index + 1 == LABELS.length ? 0 : index + 1;
+        return label;
+    }
+}
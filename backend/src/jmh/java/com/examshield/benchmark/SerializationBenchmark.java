@@ -0,0 +1,183 @@
+package com.examshield.benchmark;
+
+import com.examshield.dto.*;
+import com.examshield.model.AlertHistory;
+import com.examshield.model.DetectionEvent;
+import com.examshield.model.StudentScore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the ingest frame and the session report, with an
+ * {@link ObjectMapper} configured the way Spring Boot configures the application's.
+ * Payloads are sized like the real ones: a frame of a full exam hall and a report
+ * with the report's own list limits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final DetectionEvent.EventType[] EVENT_TYPES = DetectionEvent.EventType.values();
+    private static final LocalDateTime TIME = LocalDateTime.of(2026, 1, 15, 9, 30);
+
+    private ObjectMapper objectMapper;
+    private RealTimeDetectionDTO frame;
+    private byte[] frameJson;
+    private SessionReportDTO report;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        frame = frame(30);
+        frameJson = objectMapper.writeValueAsBytes(frame);
+        report = report();
+    }
+
+    @Benchmark
+    public byte[] serializeFrame() throws IOException {
+        return objectMapper.writeValueAsBytes(frame);
+    }
+
+    @Benchmark
+    public RealTimeDetectionDTO deserializeFrame() throws IOException {
+        return objectMapper.readValue(frameJson, RealTimeDetectionDTO.class);
+    }
+
+    @Benchmark
+    public byte[] serializeReport() throws IOException {
+        return objectMapper.writeValueAsBytes(report);
+    }
+
+    private static RealTimeDetectionDTO frame(int detections) {
+        List<RealTimeDetectionDTO.DetectionResult> results = new ArrayList<>(detections);
+        for (int i = 0; i < detections; i++) {
+            results.add(RealTimeDetectionDTO.DetectionResult.builder()
+                    .personId("student_" + i)
+                    .className(i % 3 == 0 ? "phone" : "head_turned")
+                    .confidence(0.87)
+                    .x(40 * i)
+                    .y(120)
+                    .width(64)
+                    .height(128)
+                    .build());
+        }
+        return RealTimeDetectionDTO.builder()
+                .sessionId(1L)
+                .frameNumber(4211)
+                .timestamp(TIME)
+                .detections(results)
+                .headCount(RealTimeDetectionDTO.HeadCountInfo.builder().detected(detections).expected(detections).missing(0).build())
+                .sessionStats(stats())
+                .build();
+    }
+
+    private static RealTimeDetectionDTO.SessionStats stats() {
+        return RealTimeDetectionDTO.SessionStats.builder()
+                .totalDetections(1520)
+                .phoneCount(212)
+                .earphoneCount(98)
+                .watchCount(57)
+                .chitCount(33)
+                .textbookCount(12)
+                .notebookCount(41)
+                .behaviorCount(1067)
+                .averageScore(23.4)
+                .maxScore(91.2)
+                .suspiciousStudents(4)
+                .normalStudents(26)
+                .alertLevel("YELLOW")
+                .build();
+    }
+
+    private static SessionReportDTO report() {
+        List<StudentScoreDTO> topStudents = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            topStudents.add(StudentScoreDTO.builder()
+                    .id((long) i)
+                    .sessionId(1L)
+                    .trackingId("student_" + i)
+                    .totalScore(90.0 - i * 7)
+                    .violationCount(40 - i)
+                    .alertLevel(StudentScore.AlertLevel.values()[i % 4])
+                    .phoneCount(5).earphoneCount(3).watchCount(1).chitCount(0)
+                    .textbookCount(0).notebookCount(2).behaviorCount(29 - i)
+                    .firstSeen(TIME)
+                    .lastSeen(TIME.plusHours(2))
+                    .build());
+        }
+
+        List<DetectionEventDTO> recentDetections = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            recentDetections.add(DetectionEventDTO.builder()
+                    .id((long) i)
+                    .sessionId(1L)
+                    .timestamp(TIME.plusSeconds(i))
+                    .personId("student_" + i)
+                    .eventType(EVENT_TYPES[i % EVENT_TYPES.length])
+                    .confidence(0.9)
+                    .points(25)
+                    .boundingBox(DetectionEventDTO.BoundingBox.builder().x(100).y(80).width(64).height(128).build())
+                    .isResolved(false)
+                    .build());
+        }
+
+        List<AlertHistoryDTO> recentAlerts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            recentAlerts.add(AlertHistoryDTO.builder()
+                    .id((long) i)
+                    .sessionId(1L)
+                    .alertLevel(AlertHistory.AlertLevel.RED)
+                    .message("PHONE_DETECTED detected for person student_" + i + " (70 points)")
+                    .personId("student_" + i)
+                    .eventType("PHONE_DETECTED")
+                    .isAcknowledged(false)
+                    .timestamp(TIME.plusMinutes(i))
+                    .build());
+        }
+
+        Map<String, Integer> violationBreakdown = new LinkedHashMap<>();
+        for (DetectionEvent.EventType eventType : EVENT_TYPES) {
+            violationBreakdown.put(eventType.name(), 100 + eventType.ordinal());
+        }
+
+        return SessionReportDTO.builder()
+                .sessionId(1L)
+                .sessionName("Midterm - Hall B")
+                .startTime(TIME)
+                .endTime(TIME.plusHours(3))
+                .status("COMPLETED")
+                .expectedCount(30)
+                .actualCount(30)
+                .missingCount(0)
+                .summaryStats(SessionReportDTO.SummaryStats.builder()
+                        .totalDetections(1520L)
+                        .criticalAlerts(7L)
+                        .averageScore(23.4)
+                        .maxScore(91.2)
+                        .suspiciousStudents(4)
+                        .normalStudents(26)
+                        .alertLevel("YELLOW")
+                        .build())
+                .topStudents(topStudents)
+                .recentDetections(recentDetections)
+                .recentAlerts(recentAlerts)
+                .violationBreakdown(violationBreakdown)
+                .build();
+    }
+}
@@ -0,0 +1,212 @@
+package com.examshield.benchmark;
+
+import com.examshield.dto.CreateSessionRequest;
+import com.examshield.dto.RealTimeDetectionDTO;
+import com.examshield.dto.SessionReportDTO;
+import com.examshield.model.AlertHistory;
+import com.examshield.model.DetectionEvent;
+import com.examshield.service.CompiledScoringPolicy;
+import com.examshield.service.DetectionService;
+import com.examshield.service.ExamSessionService;
+import com.examshield.service.ReportService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session statistics and report generation over a session seeded with a fixed,
+ * seeded-random set of events, student scores and alerts. The live scoreboard path is
+ * measured next to the database path it replaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SessionStatsBenchmark {
+
+    private static final DetectionEvent.EventType[] EVENT_TYPES = DetectionEvent.EventType.values();
+    private static final int STUDENTS = 200;
+    private static final int EVENTS_PER_ALERT = 20;
+    private static final long EXAM_MILLIS = TimeUnit.HOURS.toMillis(3);
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int events;
+
+    private ConfigurableApplicationContext context;
+    private DetectionService detectionService;
+    private ReportService reportService;
+    private Long sessionId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start("stats-" + events, Map.of(
+                "app.detection.confirmation.frames", 1,
+                "app.detection.confirmation.required", 1));
+        detectionService = context.getBean(DetectionService.class);
+        reportService = context.getBean(ReportService.class);
+
+        ExamSessionService examSessionService = context.getBean(ExamSessionService.class);
+        sessionId = examSessionService.createSession(CreateSessionRequest.builder()
+                .name("stats-benchmark")
+                .expectedCount(STUDENTS)
+                .build()).getId();
+        examSessionService.startSession(sessionId, null);
+
+        seed(context.getBean("writeDataSource", DataSource.class));
+        loadScoreboard();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public RealTimeDetectionDTO.SessionStats statsFromDatabase() {
+        return detectionService.calculateSessionStatsFromDatabase(sessionId);
+    }
+
+    @Benchmark
+    public RealTimeDetectionDTO.SessionStats statsFromScoreboard() {
+        return detectionService.calculateSessionStats(sessionId);
+    }
+
+    @Benchmark
+    public SessionReportDTO generateReport() {
+        return reportService.generateReport(sessionId);
+    }
+
+    /**
+     * The scoreboard is built from the seeded rows when the session's first detection
+     * is accepted.
+     */
+    private void loadScoreboard() {
+        detectionService.processFrames(List.of(RealTimeDetectionDTO.builder()
+                .sessionId(sessionId)
+                .frameNumber(0)
+                .timestamp(LocalDateTime.now())
+                .detections(List.of(RealTimeDetectionDTO.DetectionResult.builder()
+                        .personId("student_0")
+                        .className("phone")
+                        .confidence(0.9)
+                        .build()))
+                .build()));
+    }
+
+    private void seed(DataSource dataSource) throws SQLException {
+        CompiledScoringPolicy policy = CompiledScoringPolicy.BUILT_IN;
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        long start = now - EXAM_MILLIS;
+        int[][] counts = new int[STUDENTS][EVENT_TYPES.length];
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement event = connection.prepareStatement(
+                    "INSERT INTO detection_events (id, session_id, timestamp, person_id, event_type, description, "
+                            + "confidence, points, is_resolved, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement alert = connection.prepareStatement(
+                         "INSERT INTO alert_history (id, session_id, alert_level, message, person_id, event_type, "
+                                 + "is_acknowledged, timestamp, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < events; i++) {
+                    int student = random.nextInt(STUDENTS);
+                    DetectionEvent.EventType eventType = EVENT_TYPES[random.nextInt(EVENT_TYPES.length)];
+                    double confidence = 0.5 + random.nextDouble() * 0.5;
+                    int points = (int) (policy.points(eventType) * confidence);
+                    Timestamp timestamp = new Timestamp(start + EXAM_MILLIS * i / events);
+                    counts[student][eventType.ordinal()]++;
+
+                    event.setLong(1, i + 1);
+                    event.setLong(2, sessionId);
+                    event.setTimestamp(3, timestamp);
+                    event.setString(4, "student_" + student);
+                    event.setString(5, eventType.name());
+                    event.setString(6, eventType.name());
+                    event.setDouble(7, confidence);
+                    event.setInt(8, points);
+                    event.setBoolean(9, false);
+                    event.setTimestamp(10, timestamp);
+                    event.addBatch();
+
+                    if (i % EVENTS_PER_ALERT == 0) {
+                        alert.setLong(1, i / EVENTS_PER_ALERT + 1);
+                        alert.setLong(2, sessionId);
+                        alert.setString(3, policy.alertLevel(points).name());
+                        alert.setString(4, eventType.name() + " detected for person student_" + student);
+                        alert.setString(5, "student_" + student);
+                        alert.setString(6, eventType.name());
+                        alert.setBoolean(7, false);
+                        alert.setTimestamp(8, timestamp);
+                        alert.setTimestamp(9, timestamp);
+                        alert.addBatch();
+                    }
+
+                    if ((i + 1) % BATCH_SIZE == 0) {
+                        event.executeBatch();
+                        alert.executeBatch();
+                    }
+                }
+                event.executeBatch();
+                alert.executeBatch();
+            }
+
+            try (PreparedStatement score = connection.prepareStatement(
+                    "INSERT INTO student_scores (id, session_id, tracking_id, total_score, score_updated_at, violation_count, "
+                            + "alert_level, phone_count, earphone_count, watch_count, chit_count, textbook_count, "
+                            + "notebook_count, behavior_count, first_seen, last_seen, created_at, updated_at) "
+                            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                Timestamp firstSeen = new Timestamp(start);
+                Timestamp lastSeen = new Timestamp(now);
+                for (int student = 0; student < STUDENTS; student++) {
+                    int[] studentCounts = counts[student];
+                    int violations = 0;
+                    for (int count : studentCounts) {
+                        violations += count;
+                    }
+                    int devices = studentCounts[DetectionEvent.EventType.PHONE_DETECTED.ordinal()]
+                            + studentCounts[DetectionEvent.EventType.EARPHONE_DETECTED.ordinal()]
+                            + studentCounts[DetectionEvent.EventType.SMARTWATCH_DETECTED.ordinal()]
+                            + studentCounts[DetectionEvent.EventType.CHIT_DETECTED.ordinal()]
+                            + studentCounts[DetectionEvent.EventType.TEXTBOOK_DETECTED.ordinal()]
+                            + studentCounts[DetectionEvent.EventType.NOTEBOOK_DETECTED.ordinal()];
+                    double totalScore = random.nextDouble() * 120;
+
+                    score.setLong(1, student + 1);
+                    score.setLong(2, sessionId);
+                    score.setString(3, "student_" + student);
+                    score.setDouble(4, totalScore);
+                    score.setTimestamp(5, lastSeen);
+                    score.setInt(6, violations);
+                    score.setString(7, policy.studentAlertLevel(totalScore).name());
+                    score.setInt(8, studentCounts[DetectionEvent.EventType.PHONE_DETECTED.ordinal()]);
+                    score.setInt(9, studentCounts[DetectionEvent.EventType.EARPHONE_DETECTED.ordinal()]);
+                    score.setInt(10, studentCounts[DetectionEvent.EventType.SMARTWATCH_DETECTED.ordinal()]);
+                    score.setInt(11, studentCounts[DetectionEvent.EventType.CHIT_DETECTED.ordinal()]);
+                    score.setInt(12, studentCounts[DetectionEvent.EventType.TEXTBOOK_DETECTED.ordinal()]);
+                    score.setInt(13, studentCounts[DetectionEvent.EventType.NOTEBOOK_DETECTED.ordinal()]);
+                    score.setInt(14, violations - devices);
+                    score.setTimestamp(15, firstSeen);
+                    score.setTimestamp(16, lastSeen);
+                    score.setTimestamp(17, firstSeen);
+                    score.setTimestamp(18, lastSeen);
+                    score.addBatch();
+                }
+                score.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+}
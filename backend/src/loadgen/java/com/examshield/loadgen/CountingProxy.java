@@ -0,0 +1,92 @@
+package com.examshield.loadgen;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local TCP relay that counts the bytes passing each way, so a client pointed at it
+ * sees the backend as usual while the relay measures what went over the wire,
+ * handshakes and framing included.
+ */
+final class CountingProxy implements AutoCloseable {
+
+    private final String targetHost;
+    private final int targetPort;
+    private final ServerSocket serverSocket;
+    private final LongAdder upstream = new LongAdder();
+    private final LongAdder downstream = new LongAdder();
+
+    CountingProxy(String targetHost, int targetPort) throws IOException {
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "proxy-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    long getUpstreamBytes() {
+        return upstream.sum();
+    }
+
+    long getDownstreamBytes() {
+        return downstream.sum();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                Socket target = new Socket(targetHost, targetPort);
+                client.setTcpNoDelay(true);
+                target.setTcpNoDelay(true);
+                pump(client, target, upstream);
+                pump(target, client, downstream);
+            } catch (IOException e) {
+                // Closed, or the backend refused the connection; the client sees it fail
+            }
+        }
+    }
+
+    private static void pump(Socket from, Socket to, LongAdder counter) {
+        Thread thread = new Thread(() -> {
+            byte[] buffer = new byte[16384];
+            try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, read);
+                    counter.add(read);
+                }
+            } catch (IOException ignored) {
+                // Either side hung up
+            } finally {
+                closeQuietly(from);
+                closeQuietly(to);
+            }
+        }, "proxy-pump");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,75 @@
+package com.examshield.loadgen;
+
+import com.examshield.dto.RealTimeDetectionDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Recorded detection logs: {@link RealTimeDetectionDTO} frames as JSON lines, or as one
+ * JSON array (the body of {@code /api/detect/frames}).
+ */
+final class FrameLog implements AutoCloseable {
+
+    private final BufferedWriter writer;
+    private final ObjectMapper objectMapper;
+
+    private FrameLog(BufferedWriter writer, ObjectMapper objectMapper) {
+        this.writer = writer;
+        this.objectMapper = objectMapper;
+    }
+
+    static FrameLog create(Path file, ObjectMapper objectMapper) throws IOException {
+        return new FrameLog(Files.newBufferedWriter(file), objectMapper);
+    }
+
+    synchronized void append(RealTimeDetectionDTO frame) {
+        try {
+            writer.write(objectMapper.writeValueAsString(frame));
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Reads a log and orders its frames by timestamp. Frames without a timestamp are
+     * rejected, since replay pacing depends on it.
+     */
+    static List<RealTimeDetectionDTO> read(Path file, ObjectMapper objectMapper) throws IOException {
+        String content = Files.readString(file).strip();
+        List<RealTimeDetectionDTO> frames;
+        if (content.startsWith("[")) {
+            frames = objectMapper.readValue(content, new TypeReference<List<RealTimeDetectionDTO>>() {
+            });
+        } else {
+            frames = new ArrayList<>();
+            for (String line : content.split("\\R")) {
+                if (!line.isBlank()) {
+                    frames.add(objectMapper.readValue(line, RealTimeDetectionDTO.class));
+                }
+            }
+        }
+
+        for (RealTimeDetectionDTO frame : frames) {
+            if (frame.getTimestamp() == null || frame.getSessionId() == null) {
+                throw new IllegalArgumentException("Replayed frames need a sessionId and a timestamp");
+            }
+        }
+        frames.sort(Comparator.comparing(RealTimeDetectionDTO::getTimestamp));
+        return frames;
+    }
+}
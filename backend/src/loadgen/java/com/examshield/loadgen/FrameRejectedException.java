@@ -0,0 +1,13 @@
+package com.examshield.loadgen;
+
+/**
+ * The backend refused a frame under load (HTTP 429 or a STOMP overload signal).
+ */
+class FrameRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    FrameRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,21 @@
+package com.examshield.loadgen;
+
+import com.examshield.dto.FrameIngestResultDTO;
+import com.examshield.dto.RealTimeDetectionDTO;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Delivers frames to the backend. The returned future completes when the backend has
+ * processed the frame, with its ingest totals where the transport reports them (null
+ * otherwise), or fails with {@link FrameRejectedException} when the backend refused it.
+ */
+interface FrameSender extends AutoCloseable {
+
+    CompletableFuture<FrameIngestResultDTO> send(RealTimeDetectionDTO frame);
+
+    String describe();
+
+    @Override
+    void close();
+}
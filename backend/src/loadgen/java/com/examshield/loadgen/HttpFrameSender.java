@@ -0,0 +1,69 @@
+package com.examshield.loadgen;
+
+import com.examshield.dto.FrameIngestResultDTO;
+import com.examshield.dto.RealTimeDetectionDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Posts each frame to {@code /api/detect/process} without waiting for earlier ones.
+ */
+final class HttpFrameSender implements FrameSender {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final URI endpoint;
+    private final ObjectMapper objectMapper;
+
+    HttpFrameSender(String url, ObjectMapper objectMapper) {
+        this.endpoint = URI.create(url + "/api/detect/process");
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public CompletableFuture<FrameIngestResultDTO> send(RealTimeDetectionDTO frame) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(endpoint)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(frame)))
+                    .build();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            if (response.statusCode() == 429) {
+                throw new FrameRejectedException("HTTP 429");
+            }
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("HTTP " + response.statusCode());
+            }
+            try {
+                return objectMapper.readValue(response.body(), FrameIngestResultDTO.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public String describe() {
+        return "http (POST " + endpoint + ")";
+    }
+
+    @Override
+    public void close() {
+        // HttpClient has no close() before Java 21; its threads are daemons
+    }
+}
@@ -0,0 +1,40 @@
+package com.examshield.loadgen;
+
+import java.util.Arrays;
+
+/**
+ * Keeps every latency sample, in microseconds, so percentiles are exact.
+ */
+final class LatencyRecorder {
+
+    private long[] samples = new long[1 << 16];
+    private int count;
+
+    synchronized void record(long micros) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = micros;
+    }
+
+    synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the given percentiles (0-100), or zeros when nothing was recorded.
+     */
+    synchronized long[] percentiles(double... percentiles) {
+        long[] result = new long[percentiles.length];
+        if (count == 0) {
+            return result;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        for (int i = 0; i < percentiles.length; i++) {
+            int index = (int) Math.ceil(percentiles[i] / 100.0 * count) - 1;
+            result[i] = sorted[Math.max(0, Math.min(index, count - 1))];
+        }
+        return result;
+    }
+}
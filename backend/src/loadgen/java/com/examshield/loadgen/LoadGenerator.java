@@ -0,0 +1,327 @@
+package com.examshield.loadgen;
+
+import com.examshield.dto.FrameIngestResultDTO;
+import com.examshield.dto.RealTimeDetectionDTO;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the detection ingest endpoints with synthetic exam rooms, or replays a
+ * recorded detection log, and reports throughput and latency.
+ * <p>
+ * The load is open-loop: frames are sent on schedule whether or not earlier ones were
+ * answered, and latency is measured from the time a frame was due rather than the time
+ * it was actually sent, so a stalled backend shows up in the tail instead of slowing
+ * the generator down.
+ */
+public final class LoadGenerator {
+
+    private static final double[] PERCENTILES = {50, 99, 99.9, 100};
+
+    private final LoadOptions options;
+    private final ObjectMapper objectMapper;
+    private final HttpClient controlClient = HttpClient.newHttpClient();
+    private final LatencyRecorder latencies = new LatencyRecorder();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder measuredFrames = new LongAdder();
+    private final LongAdder measuredDetections = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder pendingConfirmation = new LongAdder();
+    private final LongAdder cooledDown = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final AtomicLong lastError = new AtomicLong();
+
+    private FrameSender sender;
+    private long startNanos;
+    private long measureFromNanos;
+    private volatile long measureUntilNanos = Long.MAX_VALUE;
+
+    private LoadGenerator(LoadOptions options) {
+        this.options = options;
+        this.objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.print(LoadOptions.USAGE);
+            return;
+        }
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        new LoadGenerator(options).run();
+    }
+
+    private void run() throws Exception {
+        List<RealTimeDetectionDTO> replay = options.replay != null ? FrameLog.read(options.replay, objectMapper) : null;
+        Map<Long, Long> sessions = replay != null ? createReplaySessions(replay) : createRooms();
+        System.out.printf("Started %d sessions: %s%n", sessions.size(), sessions.values());
+
+        sender = options.transport == LoadOptions.Transport.HTTP
+                ? new HttpFrameSender(options.url, objectMapper)
+                : new StompFrameSender(options.url, objectMapper, sessions.values());
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(daemon("loadgen-progress"));
+
+        try {
+            startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+            measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+            progress.scheduleAtFixedRate(this::printProgress, 5, 5, TimeUnit.SECONDS);
+
+            if (replay != null) {
+                replay(replay, sessions);
+            } else {
+                generate(new ArrayList<>(sessions.values()));
+            }
+            awaitInFlight();
+        } finally {
+            progress.shutdownNow();
+            sender.close();
+            if (!options.keepSessions) {
+                for (Long sessionId : sessions.values()) {
+                    post("/api/sessions/" + sessionId + "/end", null);
+                }
+            }
+        }
+        printReport();
+    }
+
+    private Map<Long, Long> createRooms() throws IOException, InterruptedException {
+        Map<Long, Long> sessions = new LinkedHashMap<>();
+        for (long room = 1; room <= options.rooms; room++) {
+            sessions.put(room, createSession("Load test room " + room, options.students));
+        }
+        return sessions;
+    }
+
+    /**
+     * Creates one session per session id in the log, so a replay never writes into the
+     * sessions it was recorded from.
+     */
+    private Map<Long, Long> createReplaySessions(List<RealTimeDetectionDTO> frames) throws IOException, InterruptedException {
+        Map<Long, Integer> expectedCounts = new LinkedHashMap<>();
+        for (RealTimeDetectionDTO frame : frames) {
+            Integer expected = frame.getHeadCount() != null ? frame.getHeadCount().getExpected() : null;
+            expectedCounts.merge(frame.getSessionId(), expected != null ? expected : options.students, Math::max);
+        }
+        Map<Long, Long> sessions = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> entry : expectedCounts.entrySet()) {
+            sessions.put(entry.getKey(), createSession("Replay of session " + entry.getKey(), entry.getValue()));
+        }
+        return sessions;
+    }
+
+    private void generate(List<Long> sessionIds) throws IOException {
+        Random random = new Random(options.seed);
+        List<RoomSimulator> rooms = new ArrayList<>();
+        for (Long sessionId : sessionIds) {
+            rooms.add(new RoomSimulator(sessionId, options.students, options.frameRate, options.burstsPerMinute,
+                    new Random(random.nextLong())));
+        }
+
+        long intervalNanos = (long) (1_000_000_000L / options.frameRate);
+        long endNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        measureUntilNanos = endNanos;
+        long offsetMillis = System.currentTimeMillis() - System.nanoTime() / 1_000_000;
+
+        try (FrameLog record = options.record != null ? FrameLog.create(options.record, objectMapper) : null) {
+            for (long tick = 0; ; tick++) {
+                long dueNanos = startNanos + tick * intervalNanos;
+                if (dueNanos >= endNanos) {
+                    break;
+                }
+                sleepUntil(dueNanos);
+                for (RoomSimulator room : rooms) {
+                    RealTimeDetectionDTO frame = room.nextFrame(offsetMillis + dueNanos / 1_000_000);
+                    frame.setJobId("loadgen-" + room.getSessionId() + "-" + frame.getFrameNumber());
+                    if (record != null) {
+                        record.append(frame);
+                    }
+                    send(frame, dueNanos);
+                }
+            }
+        }
+    }
+
+    private void replay(List<RealTimeDetectionDTO> frames, Map<Long, Long> sessions) {
+        ZoneId zone = ZoneId.systemDefault();
+        long firstMillis = frames.get(0).getTimestamp().atZone(zone).toInstant().toEpochMilli();
+        long lastMillis = frames.get(frames.size() - 1).getTimestamp().atZone(zone).toInstant().toEpochMilli();
+        measureUntilNanos = startNanos + (long) ((lastMillis - firstMillis) * 1_000_000L / options.speed) + 1;
+
+        int index = 0;
+        for (RealTimeDetectionDTO recorded : frames) {
+            long offsetMillis = recorded.getTimestamp().atZone(zone).toInstant().toEpochMilli() - firstMillis;
+            long dueNanos = startNanos + (long) (offsetMillis * 1_000_000L / options.speed);
+            sleepUntil(dueNanos);
+
+            RealTimeDetectionDTO frame = RealTimeDetectionDTO.builder()
+                    .sessionId(sessions.get(recorded.getSessionId()))
+                    .jobId("replay-" + index++)
+                    .timestamp(recorded.getTimestamp())
+                    .frameNumber(recorded.getFrameNumber())
+                    .detections(recorded.getDetections())
+                    .headCount(recorded.getHeadCount())
+                    .build();
+            send(frame, dueNanos);
+        }
+    }
+
+    private void send(RealTimeDetectionDTO frame, long dueNanos) {
+        if (inFlight.get() >= options.maxInFlight) {
+            dropped.increment();
+            return;
+        }
+        inFlight.incrementAndGet();
+        sent.increment();
+        boolean measured = dueNanos >= measureFromNanos && dueNanos < measureUntilNanos;
+        int detections = frame.getDetections() != null ? frame.getDetections().size() : 0;
+
+        sender.send(frame)
+                .orTimeout(options.timeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> {
+                    inFlight.decrementAndGet();
+                    if (error != null) {
+                        recordFailure(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                        return;
+                    }
+                    completed.increment();
+                    if (measured) {
+                        latencies.record((System.nanoTime() - dueNanos) / 1_000);
+                        measuredFrames.increment();
+                        measuredDetections.add(detections);
+                    }
+                    if (result != null) {
+                        recordTotals(result);
+                    }
+                });
+    }
+
+    private void recordFailure(Throwable error) {
+        if (error instanceof FrameRejectedException) {
+            rejected.increment();
+        } else if (error instanceof TimeoutException) {
+            timedOut.increment();
+        } else {
+            failed.increment();
+            long now = System.nanoTime();
+            long last = lastError.get();
+            if (now - last > TimeUnit.SECONDS.toNanos(5) && lastError.compareAndSet(last, now)) {
+                System.err.println("Frame failed: " + error);
+            }
+        }
+    }
+
+    private void recordTotals(FrameIngestResultDTO result) {
+        accepted.add(result.getAccepted());
+        pendingConfirmation.add(result.getPending());
+        cooledDown.add(result.getCooledDown());
+        shed.add(result.getShed());
+    }
+
+    private void awaitInFlight() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.timeoutMs + 1_000);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private void printProgress() {
+        System.out.printf("[%4ds] sent %d, completed %d, in flight %d, rejected %d, timed out %d, failed %d%n",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos),
+                sent.sum(), completed.sum(), inFlight.get(), rejected.sum(), timedOut.sum(), failed.sum());
+    }
+
+    private void printReport() {
+        double seconds = (Math.min(measureUntilNanos, System.nanoTime()) - measureFromNanos) / 1e9;
+        long[] p = latencies.percentiles(PERCENTILES);
+
+        System.out.println();
+        System.out.printf("Transport        %s%n", sender.describe());
+        if (options.replay != null) {
+            System.out.printf("Source           replay of %s at %.1fx%n", options.replay, options.speed);
+        } else {
+            System.out.printf("Source           %d rooms x %d students at %.1f fps, %.1f bursts/min, seed %d%n",
+                    options.rooms, options.students, options.frameRate, options.burstsPerMinute, options.seed);
+        }
+        System.out.printf("Measured         %.1f s after %d s warm-up%n", seconds, options.warmupSeconds);
+        System.out.printf("Frames           sent %d, completed %d, rejected %d, timed out %d, failed %d, dropped %d%n",
+                sent.sum(), completed.sum(), rejected.sum(), timedOut.sum(), failed.sum(), dropped.sum());
+        System.out.printf("Throughput       %.1f frames/s, %.1f detections/s%n",
+                seconds > 0 ? measuredFrames.sum() / seconds : 0, seconds > 0 ? measuredDetections.sum() / seconds : 0);
+        if (options.transport == LoadOptions.Transport.HTTP) {
+            System.out.printf("Detections       accepted %d, pending %d, cooled down %d, shed %d%n",
+                    accepted.sum(), pendingConfirmation.sum(), cooledDown.sum(), shed.sum());
+        } else {
+            StompFrameSender stomp = (StompFrameSender) sender;
+            System.out.printf("Backpressure     slow down %d, overloaded %d%n", stomp.getSlowDownSignals(), stomp.getOverloadSignals());
+        }
+        System.out.printf("Latency (ms)     p50 %.2f, p99 %.2f, p999 %.2f, max %.2f (%d samples)%n",
+                p[0] / 1000.0, p[1] / 1000.0, p[2] / 1000.0, p[3] / 1000.0, latencies.getCount());
+    }
+
+    private Long createSession(String name, int expectedCount) throws IOException, InterruptedException {
+        String body = objectMapper.writeValueAsString(Map.of("name", name, "expectedCount", expectedCount));
+        Long sessionId = post("/api/sessions", body).get("id").asLong();
+        post("/api/sessions/" + sessionId + "/start", null);
+        return sessionId;
+    }
+
+    private JsonNode post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(options.url + path))
+                .header("Content-Type", "application/json")
+                .POST(body != null ? HttpRequest.BodyPublishers.ofString(body) : HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> response = controlClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("POST " + path + " failed with HTTP " + response.statusCode() + ": " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private static void sleepUntil(long dueNanos) {
+        long remaining;
+        while ((remaining = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
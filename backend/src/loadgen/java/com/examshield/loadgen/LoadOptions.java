@@ -0,0 +1,106 @@
+package com.examshield.loadgen;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Command-line options of the {@link LoadGenerator}, given as {@code --name=value}.
+ */
+final class LoadOptions {
+
+    static final String USAGE = """
+            Usage: LoadGenerator [--option=value ...]
+
+              --url=http://localhost:8080   backend base URL
+              --transport=http|stomp        POST /api/detect/process or STOMP /app/detections (default http)
+              --rooms=4                     concurrent exam rooms, one session each
+              --students=30                 students per room
+              --frame-rate=N                frames per second per room (default app.stream.frame-rate)
+              --bursts-per-minute=2         suspicious-behaviour bursts per room per minute
+              --duration=60                 seconds to run, after warm-up
+              --warmup=5                    seconds excluded from the report
+              --seed=42                     random seed of the traffic model
+              --record=FILE                 also write every generated frame to FILE as JSON lines
+              --replay=FILE                 replay recorded frames (JSON lines or array) instead of generating
+              --speed=1                     replay speed-up factor
+              --timeout-ms=10000            frames unanswered for this long count as timed out
+              --max-in-flight=10000         frames beyond this many outstanding are dropped by the client
+              --keep-sessions               do not end the sessions afterwards
+            """;
+
+    enum Transport { HTTP, STOMP }
+
+    String url = "http://localhost:8080";
+    Transport transport = Transport.HTTP;
+    int rooms = 4;
+    int students = 30;
+    double frameRate = defaultFrameRate();
+    double burstsPerMinute = 2;
+    int durationSeconds = 60;
+    int warmupSeconds = 5;
+    long seed = 42;
+    Path record;
+    Path replay;
+    double speed = 1;
+    long timeoutMs = 10_000;
+    int maxInFlight = 10_000;
+    boolean keepSessions;
+
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            String name = separator > 0 ? arg.substring(2, separator) : arg.substring(2);
+            String value = separator > 0 ? arg.substring(separator + 1) : "";
+            switch (name) {
+                case "url" -> options.url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                case "transport" -> options.transport = Transport.valueOf(value.toUpperCase(Locale.ROOT));
+                case "rooms" -> options.rooms = positive(name, Integer.parseInt(value));
+                case "students" -> options.students = positive(name, Integer.parseInt(value));
+                case "frame-rate" -> options.frameRate = positive(name, Double.parseDouble(value));
+                case "bursts-per-minute" -> options.burstsPerMinute = Double.parseDouble(value);
+                case "duration" -> options.durationSeconds = positive(name, Integer.parseInt(value));
+                case "warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                case "seed" -> options.seed = Long.parseLong(value);
+                case "record" -> options.record = Paths.get(value);
+                case "replay" -> options.replay = Paths.get(value);
+                case "speed" -> options.speed = positive(name, Double.parseDouble(value));
+                case "timeout-ms" -> options.timeoutMs = positive(name, Long.parseLong(value));
+                case "max-in-flight" -> options.maxInFlight = positive(name, Integer.parseInt(value));
+                case "keep-sessions" -> options.keepSessions = true;
+                default -> throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+        return options;
+    }
+
+    private static <T extends Number> T positive(String name, T value) {
+        if (value.doubleValue() <= 0) {
+            throw new IllegalArgumentException("--" + name + " must be positive");
+        }
+        return value;
+    }
+
+    /**
+     * The backend's own {@code app.stream.frame-rate}, read from the application.properties
+     * on the classpath, so the generator paces frames like the stream processor does.
+     */
+    private static double defaultFrameRate() {
+        Properties properties = new Properties();
+        try (InputStream in = LoadOptions.class.getResourceAsStream("/application.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException ignored) {
+            // Fall back to the default below
+        }
+        return Double.parseDouble(properties.getProperty("app.stream.frame-rate", "5"));
+    }
+}
@@ -0,0 +1,124 @@
+package com.examshield.loadgen;
+
+import com.examshield.dto.RealTimeDetectionDTO;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Traffic model of one exam room. Most frames are clean. Now and then a student starts
+ * a burst of phone, earphone or neighbour-looking behaviour lasting a few seconds, and
+ * the detector reports it in most but not all of those frames. Rare single-frame false
+ * positives and a jittering, occasionally occluded head count fill in the rest.
+ */
+final class RoomSimulator {
+
+    private static final String[] BURST_CLASSES = {"phone", "earphone", "looking_at_neighbor"};
+    private static final double[] BURST_WEIGHTS = {0.40, 0.25, 0.35};
+    private static final double DETECTION_RATE = 0.8;
+    private static final double FALSE_POSITIVE_RATE = 0.02;
+    private static final double JITTER_RATE = 0.05;
+    private static final double OCCLUSION_RATE = 0.01;
+    private static final int SEATS_PER_ROW = 6;
+
+    private final long sessionId;
+    private final int students;
+    private final double frameRate;
+    private final double burstRate;
+    private final Random random;
+    private final List<Burst> bursts = new ArrayList<>();
+
+    private int frameNumber;
+    private int occludedFrames;
+
+    private record Burst(int student, String className, int[] framesLeft) {
+    }
+
+    RoomSimulator(long sessionId, int students, double frameRate, double burstsPerMinute, Random random) {
+        this.sessionId = sessionId;
+        this.students = students;
+        this.frameRate = frameRate;
+        this.burstRate = burstsPerMinute / 60.0 / frameRate;
+        this.random = random;
+    }
+
+    long getSessionId() {
+        return sessionId;
+    }
+
+    RealTimeDetectionDTO nextFrame(long timestampMillis) {
+        frameNumber++;
+        if (random.nextDouble() < burstRate) {
+            int seconds = 1 + random.nextInt(4);
+            bursts.add(new Burst(random.nextInt(students), pickBurstClass(), new int[]{(int) Math.ceil(seconds * frameRate)}));
+        }
+
+        List<RealTimeDetectionDTO.DetectionResult> detections = new ArrayList<>();
+        for (Iterator<Burst> it = bursts.iterator(); it.hasNext(); ) {
+            Burst burst = it.next();
+            if (random.nextDouble() < DETECTION_RATE) {
+                detections.add(detection(burst.student(), burst.className(), 0.6 + random.nextDouble() * 0.35));
+            }
+            if (--burst.framesLeft()[0] <= 0) {
+                it.remove();
+            }
+        }
+        if (random.nextDouble() < FALSE_POSITIVE_RATE) {
+            detections.add(detection(random.nextInt(students), pickBurstClass(), 0.3 + random.nextDouble() * 0.2));
+        }
+
+        return RealTimeDetectionDTO.builder()
+                .sessionId(sessionId)
+                .frameNumber(frameNumber)
+                .timestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestampMillis), ZoneId.systemDefault()))
+                .detections(detections)
+                .headCount(RealTimeDetectionDTO.HeadCountInfo.builder()
+                        .detected(headCount())
+                        .expected(students)
+                        .build())
+                .build();
+    }
+
+    private int headCount() {
+        if (occludedFrames > 0) {
+            occludedFrames--;
+            return students - 1;
+        }
+        if (random.nextDouble() < OCCLUSION_RATE) {
+            occludedFrames = (int) Math.ceil((1 + random.nextInt(3)) * frameRate);
+            return students - 1;
+        }
+        if (random.nextDouble() < JITTER_RATE) {
+            return students + (random.nextBoolean() ? 1 : -1);
+        }
+        return students;
+    }
+
+    private String pickBurstClass() {
+        double r = random.nextDouble();
+        for (int i = 0; i < BURST_CLASSES.length - 1; i++) {
+            r -= BURST_WEIGHTS[i];
+            if (r < 0) {
+                return BURST_CLASSES[i];
+            }
+        }
+        return BURST_CLASSES[BURST_CLASSES.length - 1];
+    }
+
+    private RealTimeDetectionDTO.DetectionResult detection(int student, String className, double confidence) {
+        return RealTimeDetectionDTO.DetectionResult.builder()
+                .personId("student_" + student)
+                .className(className)
+                .confidence(Math.round(confidence * 100) / 100.0)
+                .x(40 + (student % SEATS_PER_ROW) * 200 + random.nextInt(9) - 4)
+                .y(60 + (student / SEATS_PER_ROW) * 120 + random.nextInt(9) - 4)
+                .width(80)
+                .height(110)
+                .build();
+    }
+}
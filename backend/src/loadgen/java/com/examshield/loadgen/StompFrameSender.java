@@ -0,0 +1,140 @@
+package com.examshield.loadgen;
+
+import com.examshield.dto.FrameIngestResultDTO;
+import com.examshield.dto.RealTimeDetectionDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Sends frames to {@code /app/detections}, one STOMP connection per exam session as a
+ * detector would. A frame counts as processed when the ingest result on the
+ * connection's {@code /user/queue/ingest} carries its job id back.
+ * <p>
+ * An {@code OVERLOADED} signal on {@code /topic/backpressure/{sessionId}} carries no job
+ * id, so it fails that session's oldest unanswered frame.
+ * <p>
+ * {@link StompSession#send} is not safe for concurrent use on one connection; frames
+ * must be sent from a single thread.
+ */
+final class StompFrameSender implements FrameSender {
+
+    private final String endpoint;
+    private final WebSocketStompClient client;
+    private final Map<Long, StompSession> sessions = new HashMap<>();
+    private final Map<String, CompletableFuture<FrameIngestResultDTO>> pending = new ConcurrentHashMap<>();
+    private final Map<Long, Queue<String>> sendOrder = new ConcurrentHashMap<>();
+    private final LongAdder slowDownSignals = new LongAdder();
+    private final LongAdder overloadSignals = new LongAdder();
+
+    StompFrameSender(String url, ObjectMapper objectMapper, Collection<Long> sessionIds) throws Exception {
+        this.endpoint = url.replaceFirst("^http", "ws") + "/ws/native";
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        client = new WebSocketStompClient(new StandardWebSocketClient());
+        client.setMessageConverter(converter);
+
+        for (Long sessionId : sessionIds) {
+            StompSession session = client.connectAsync(endpoint, new StompSessionHandlerAdapter() {
+            }).get(10, TimeUnit.SECONDS);
+            session.subscribe("/user/queue/ingest", new Handler(FrameIngestResultDTO.class, this::acknowledged));
+            session.subscribe("/topic/backpressure/" + sessionId, new Handler(Map.class, this::backpressure));
+            sessions.put(sessionId, session);
+            sendOrder.put(sessionId, new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    @Override
+    public CompletableFuture<FrameIngestResultDTO> send(RealTimeDetectionDTO frame) {
+        String jobId = frame.getJobId();
+        CompletableFuture<FrameIngestResultDTO> future = new CompletableFuture<>();
+        pending.put(jobId, future);
+        future.whenComplete((result, error) -> pending.remove(jobId));
+
+        Queue<String> order = sendOrder.get(frame.getSessionId());
+        while (order.peek() != null && !pending.containsKey(order.peek())) {
+            order.poll();
+        }
+        order.add(jobId);
+
+        try {
+            sessions.get(frame.getSessionId()).send("/app/detections", frame);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void acknowledged(Object payload) {
+        FrameIngestResultDTO result = (FrameIngestResultDTO) payload;
+        CompletableFuture<FrameIngestResultDTO> future = result.getJobId() != null ? pending.get(result.getJobId()) : null;
+        if (future != null) {
+            future.complete(result);
+        }
+    }
+
+    private void backpressure(Object payload) {
+        Map<?, ?> signal = (Map<?, ?>) payload;
+        if (!"OVERLOADED".equals(signal.get("status"))) {
+            slowDownSignals.increment();
+            return;
+        }
+        overloadSignals.increment();
+        Queue<String> order = sendOrder.get(((Number) signal.get("sessionId")).longValue());
+        String jobId;
+        while (order != null && (jobId = order.poll()) != null) {
+            CompletableFuture<FrameIngestResultDTO> future = pending.get(jobId);
+            if (future != null) {
+                future.completeExceptionally(new FrameRejectedException("OVERLOADED"));
+                return;
+            }
+        }
+    }
+
+    long getSlowDownSignals() {
+        return slowDownSignals.sum();
+    }
+
+    long getOverloadSignals() {
+        return overloadSignals.sum();
+    }
+
+    @Override
+    public String describe() {
+        return "stomp (SEND /app/detections via " + endpoint + ", " + sessions.size() + " connections)";
+    }
+
+    @Override
+    public void close() {
+        for (StompSession session : sessions.values()) {
+            if (session.isConnected()) {
+                session.disconnect();
+            }
+        }
+        client.stop();
+    }
+
+    private record Handler(Class<?> payloadType, Consumer<Object> consumer) implements StompFrameHandler {
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return payloadType;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            consumer.accept(payload);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.examshield.loadgen;
+
+import com.examshield.dto.FrameIngestResultDTO;
+import com.examshield.dto.RealTimeDetectionDTO;
+import com.examshield.dto.SessionDeltaDTO;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Compares the STOMP transports on the same workload: bytes on the wire and backend CPU
+ * time per 1000 messages, for SockJS ({@code /ws}), plain WebSocket ({@code /ws/native})
+ * and plain WebSocket with permessage-deflate.
+ * <p>
+ * Each run opens one connection that acts as both detector and dashboard: it sends
+ * synthetic frames to {@code /app/detections}, at most {@code window} unanswered, and
+ * follows its ingest results and the session's deltas. A message is one STOMP SEND or
+ * MESSAGE frame. Bytes are counted by a local relay between client and backend, so they
+ * include the handshake and all framing. CPU time comes from the backend's
+ * {@code process.cpu.time} meter, so the backend must not be serving anything else.
+ * Variants are interleaved over {@code rounds} after one unreported warm-up round.
+ * <p>
+ * Run with {@code mvn -Ploadgen verify -DskipTests -Dloadgen.main=com.examshield.loadgen.WireComparison
+ * -Dloadgen.args="--frames=5000"}.
+ */
+public final class WireComparison {
+
+    static final String USAGE = """
+            Usage: WireComparison [--option=value ...]
+
+              --url=http://localhost:8080   backend base URL
+              --frames=5000                 frames per variant and round
+              --rounds=3                    measured rounds, after one warm-up round
+              --students=30                 students in the simulated room
+              --window=32                   unanswered frames allowed at a time
+              --seed=42                     random seed of the traffic model
+            """;
+
+    private enum Variant {
+        SOCKJS("sockjs", "/ws"),
+        NATIVE("native", "/ws/native"),
+        NATIVE_DEFLATE("native+deflate", "/ws/native");
+
+        private final String label;
+        private final String path;
+
+        Variant(String label, String path) {
+            this.label = label;
+            this.path = path;
+        }
+    }
+
+    private static final class Totals {
+        private long messages;
+        private long upstreamBytes;
+        private long downstreamBytes;
+        private double cpuSeconds;
+    }
+
+    private String url = "http://localhost:8080";
+    private int frames = 5000;
+    private int rounds = 3;
+    private int students = 30;
+    private int window = 32;
+    private long seed = 42;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final HttpClient controlClient = HttpClient.newHttpClient();
+
+    public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.print(USAGE);
+            return;
+        }
+        WireComparison comparison = new WireComparison();
+        try {
+            comparison.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+        comparison.run();
+    }
+
+    private void parse(String[] args) {
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "url" -> url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                case "frames" -> frames = Integer.parseInt(value);
+                case "rounds" -> rounds = Integer.parseInt(value);
+                case "students" -> students = Integer.parseInt(value);
+                case "window" -> window = Integer.parseInt(value);
+                case "seed" -> seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (frames <= 0 || rounds <= 0 || students <= 0 || window <= 0) {
+            throw new IllegalArgumentException("--frames, --rounds, --students and --window must be positive");
+        }
+    }
+
+    private void run() throws Exception {
+        Map<Variant, Totals> totals = new EnumMap<>(Variant.class);
+        for (int round = 0; round <= rounds; round++) {
+            for (Variant variant : Variant.values()) {
+                Totals result = runOnce(variant, seed + round);
+                if (round > 0) {
+                    Totals sum = totals.computeIfAbsent(variant, v -> new Totals());
+                    sum.messages += result.messages;
+                    sum.upstreamBytes += result.upstreamBytes;
+                    sum.downstreamBytes += result.downstreamBytes;
+                    sum.cpuSeconds += result.cpuSeconds;
+                }
+                System.out.printf("%s %-15s %d messages%n", round == 0 ? "[warm-up]" : "[round " + round + "]",
+                        variant.label, result.messages);
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%d frames x %d rounds per variant, %d students, window %d%n", frames, rounds, students, window);
+        System.out.printf("%-15s %10s %14s %14s %14s %14s%n",
+                "Transport", "Messages", "Up KB/1k", "Down KB/1k", "Total KB/1k", "CPU ms/1k");
+        for (Map.Entry<Variant, Totals> entry : totals.entrySet()) {
+            Totals sum = entry.getValue();
+            double perThousand = 1000.0 / sum.messages;
+            System.out.printf("%-15s %10d %14.1f %14.1f %14.1f %14.1f%n", entry.getKey().label, sum.messages,
+                    sum.upstreamBytes * perThousand / 1024, sum.downstreamBytes * perThousand / 1024,
+                    (sum.upstreamBytes + sum.downstreamBytes) * perThousand / 1024, sum.cpuSeconds * perThousand * 1000);
+        }
+    }
+
+    private Totals runOnce(Variant variant, long runSeed) throws Exception {
+        long sessionId = createSession();
+        URI backend = URI.create(url);
+        try (CountingProxy proxy = new CountingProxy(backend.getHost(), backend.getPort() > 0 ? backend.getPort() : 80)) {
+            String base = "http://127.0.0.1:" + proxy.getPort();
+            WebSocketClient webSocketClient = new StandardWebSocketClient();
+            WebSocketStompClient client = variant == Variant.SOCKJS
+                    ? new WebSocketStompClient(new SockJsClient(List.of(new WebSocketTransport(webSocketClient))))
+                    : new WebSocketStompClient(webSocketClient);
+            MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+            converter.setObjectMapper(objectMapper);
+            client.setMessageConverter(converter);
+
+            WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+            if (variant == Variant.NATIVE_DEFLATE) {
+                headers.setSecWebSocketExtensions(List.of(new WebSocketExtension("permessage-deflate")));
+            }
+            String endpoint = variant == Variant.SOCKJS ? base + variant.path : base.replaceFirst("^http", "ws") + variant.path;
+
+            double cpuBefore = serverCpuSeconds();
+            Semaphore unanswered = new Semaphore(window);
+            LongAdder received = new LongAdder();
+            StompSession session = client.connectAsync(endpoint, headers, new StompSessionHandlerAdapter() {
+            }).get(10, TimeUnit.SECONDS);
+            session.subscribe("/user/queue/ingest", new Handler(FrameIngestResultDTO.class, payload -> {
+                received.increment();
+                unanswered.release();
+            }));
+            session.subscribe("/topic/session/" + sessionId, new Handler(SessionDeltaDTO.class, payload -> received.increment()));
+
+            RoomSimulator room = new RoomSimulator(sessionId, students, 5, 2, new Random(runSeed));
+            long timestamp = System.currentTimeMillis();
+            for (int i = 0; i < frames; i++) {
+                if (!unanswered.tryAcquire(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException(variant.label + ": no ingest result for 10 s");
+                }
+                RealTimeDetectionDTO frame = room.nextFrame(timestamp + i * 200L);
+                frame.setJobId("wire-" + i);
+                session.send("/app/detections", frame);
+            }
+            if (!unanswered.tryAcquire(window, 10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException(variant.label + ": frames left unanswered");
+            }
+            session.disconnect();
+            client.stop();
+
+            Totals result = new Totals();
+            result.messages = frames + received.sum();
+            result.upstreamBytes = proxy.getUpstreamBytes();
+            result.downstreamBytes = proxy.getDownstreamBytes();
+            result.cpuSeconds = serverCpuSeconds() - cpuBefore;
+            return result;
+        } finally {
+            post("/api/sessions/" + sessionId + "/end", null);
+        }
+    }
+
+    private long createSession() throws IOException, InterruptedException {
+        String body = objectMapper.writeValueAsString(Map.of("name", "Wire comparison", "expectedCount", students));
+        long sessionId = post("/api/sessions", body).get("id").asLong();
+        post("/api/sessions/" + sessionId + "/start", null);
+        return sessionId;
+    }
+
+    private double serverCpuSeconds() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/actuator/metrics/process.cpu.time")).GET().build();
+        HttpResponse<String> response = controlClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET /actuator/metrics/process.cpu.time failed with HTTP " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body()).get("measurements").get(0).get("value").asDouble();
+    }
+
+    private JsonNode post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
+                .header("Content-Type", "application/json")
+                .POST(body != null ? HttpRequest.BodyPublishers.ofString(body) : HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> response = controlClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("POST " + path + " failed with HTTP " + response.statusCode() + ": " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private record Handler(Class<?> payloadType, Consumer<Object> consumer) implements StompFrameHandler {
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return payloadType;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            consumer.accept(payload);
+        }
+    }
+}
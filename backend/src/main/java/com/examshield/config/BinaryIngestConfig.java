@@ -0,0 +1,42 @@
+package com.examshield.config;
+
+import com.examshield.controller.BinaryDetectionHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+/**
+ * Raw (non-STOMP) WebSocket endpoint for detectors using the binary ingest protocol.
+ * Runs alongside the STOMP endpoint registered in {@link WebSocketConfig}.
+ */
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class BinaryIngestConfig implements WebSocketConfigurer {
+
+    private final BinaryDetectionHandler binaryDetectionHandler;
+
+    @Value("${app.ingest.binary.path:/ingest/binary}")
+    private String path;
+
+    @Value("${app.ingest.binary.max-message-bytes:262144}")
+    private int maxMessageBytes;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(binaryDetectionHandler, path)
+                .setAllowedOriginPatterns("*");
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxBinaryMessageBufferSize(maxMessageBytes);
+        return container;
+    }
+}
@@ -0,0 +1,82 @@
+package com.examshield.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * SQLite allows one writer at a time, so all mutations go through a pool with a single
+ * connection in WAL mode while read-only transactions use a separate pool of
+ * {@code query_only} connections that never wait for the writer. A third connection is
+ * reserved for background WAL checkpoints.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${app.datasource.read-pool-size:4}")
+    private int readPoolSize;
+
+    @Value("${app.datasource.busy-timeout-ms:5000}")
+    private int busyTimeoutMs;
+
+    @Value("${app.datasource.synchronous:NORMAL}")
+    private String synchronous;
+
+    @Value("${app.datasource.wal-autocheckpoint-pages:16384}")
+    private int walAutocheckpointPages;
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource writeDataSource() {
+        HikariConfig config = baseConfig("sqlite-writer", 1);
+        config.setConnectionInitSql("PRAGMA wal_autocheckpoint = " + walAutocheckpointPages);
+        return new HikariDataSource(config);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource readDataSource() {
+        HikariConfig config = baseConfig("sqlite-reader", readPoolSize);
+        config.setConnectionInitSql("PRAGMA query_only = true");
+        return new HikariDataSource(config);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource checkpointDataSource() {
+        HikariConfig config = baseConfig("sqlite-checkpoint", 1);
+        config.setMinimumIdle(0);
+        return new HikariDataSource(config);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource writeDataSource, HikariDataSource readDataSource) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                ReadWriteRoutingDataSource.Route.WRITE, writeDataSource,
+                ReadWriteRoutingDataSource.Route.READ, readDataSource));
+        routing.setDefaultTargetDataSource(writeDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private HikariConfig baseConfig(String poolName, int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setDriverClassName("org.sqlite.JDBC");
+        config.setJdbcUrl(url);
+        config.setMaximumPoolSize(poolSize);
+        config.addDataSourceProperty("journal_mode", "WAL");
+        config.addDataSourceProperty("synchronous", synchronous);
+        config.addDataSourceProperty("busy_timeout", String.valueOf(busyTimeoutMs));
+        return config;
+    }
+}
@@ -1,6 +1,8 @@
 package com.examshield.config;
 
+import com.examshield.service.IngestOverloadedException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -27,6 +29,15 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
     }
     
+    @ExceptionHandler(IngestOverloadedException.class)
+    public ResponseEntity<Map<String, Object>> handleIngestOverloadedException(IngestOverloadedException ex) {
+        Map<String, Object> body = buildErrorResponse(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage()).getBody();
+        body.put("retryAfterMs", ex.getRetryAfterMs());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (ex.getRetryAfterMs() + 999) / 1000)))
+                .body(body);
+    }
+    
     @ExceptionHandler(MaxUploadSizeExceededException.class)
     public ResponseEntity<Map<String, Object>> handleMaxUploadSizeExceededException(MaxUploadSizeExceededException ex) {
         log.error("File too large: ", ex);
@@ -0,0 +1,21 @@
+package com.examshield.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to the reader pool and everything else to the single
+ * writer connection. Must sit behind a {@code LazyConnectionDataSourceProxy} so the
+ * lookup happens after the transaction's read-only flag has been set.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        WRITE, READ
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Route.READ : Route.WRITE;
+    }
+}
@@ -0,0 +1,370 @@
+package com.examshield.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers STOMP frames to WebSocket clients through a bounded buffer per subscriber, so a
+ * client on a bad link only falls behind itself instead of backing up the shared client
+ * outbound channel. The simple broker still matches subscriptions; every frame it (or a
+ * {@code @SubscribeMapping}/{@code @SendToUser} reply) hands to the outbound channel is
+ * taken off the channel here and queued for its session, and a {@code threads}-sized
+ * fan-out pool drains each session in turn.
+ * <p>
+ * A full buffer drops the subscriber's oldest message (dashboards recover from a delta
+ * version gap with a snapshot). Messages for {@code conflate-destinations} replace the
+ * one still queued for the same subscription, so only the latest state is sent. A
+ * subscriber that drops messages, or whose oldest message is older than
+ * {@code max-lag-ms}, on {@code slow-strikes} consecutive checks is disconnected.
+ */
+@Component
+@Slf4j
+public class SubscriberFanout implements ChannelInterceptor, WebSocketHandlerDecoratorFactory, SmartInitializingSingleton {
+
+    private static final int DRAIN_BATCH = 64;
+
+    private final ApplicationContext applicationContext;
+    private final WebSocketMetrics webSocketMetrics;
+    private final int threads;
+    private final int bufferSize;
+    private final List<String> conflateDestinations;
+    private final long maxLagNanos;
+    private final int slowStrikes;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+
+    private ThreadPoolTaskExecutor executor;
+    private MessageHandler webSocketHandler;
+
+    public SubscriberFanout(
+            ApplicationContext applicationContext,
+            WebSocketMetrics webSocketMetrics,
+            @Value("${app.websocket.fanout.threads:4}") int threads,
+            @Value("${app.websocket.fanout.buffer-size:256}") int bufferSize,
+            @Value("${app.websocket.fanout.conflate-destinations:/topic/backpressure/**}") List<String> conflateDestinations,
+            @Value("${app.websocket.fanout.max-lag-ms:2000}") long maxLagMs,
+            @Value("${app.websocket.fanout.slow-strikes:5}") int slowStrikes) {
+        this.applicationContext = applicationContext;
+        this.webSocketMetrics = webSocketMetrics;
+        this.threads = threads;
+        this.bufferSize = bufferSize;
+        this.conflateDestinations = conflateDestinations;
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMs);
+        this.slowStrikes = slowStrikes;
+    }
+
+    /**
+     * Queued frames waiting for one client, plus what the slow-consumer check needs.
+     */
+    private static final class Subscriber {
+        private final WebSocketSession session;
+        private final ArrayDeque<Slot> buffer = new ArrayDeque<>();
+        private final Map<String, Slot> conflatable = new HashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder conflated = new LongAdder();
+        private long droppedAtCheck;
+        private int strikes;
+        private volatile boolean closing;
+
+        private Subscriber(WebSocketSession session) {
+            this.session = session;
+        }
+
+        synchronized Message<?> poll() {
+            Slot slot = buffer.poll();
+            if (slot == null) {
+                return null;
+            }
+            if (slot.conflationKey != null) {
+                conflatable.remove(slot.conflationKey);
+            }
+            return slot.message;
+        }
+
+        synchronized int size() {
+            return buffer.size();
+        }
+
+        synchronized long oldestNanos() {
+            Slot head = buffer.peek();
+            return head != null ? head.enqueuedNanos : 0;
+        }
+
+        synchronized void clear() {
+            buffer.clear();
+            conflatable.clear();
+        }
+    }
+
+    private static final class Slot {
+        private Message<?> message;
+        private final long enqueuedNanos;
+        private final String conflationKey;
+        private final boolean droppable;
+
+        private Slot(Message<?> message, String conflationKey, boolean droppable) {
+            this.message = message;
+            this.enqueuedNanos = System.nanoTime();
+            this.conflationKey = conflationKey;
+            this.droppable = droppable;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("ws-fanout-");
+        executor.initialize();
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // The STOMP handler is itself built from the configurer that registers this bean
+        webSocketHandler = applicationContext.getBean("subProtocolWebSocketHandler", MessageHandler.class);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                subscribers.put(session.getId(), new Subscriber(session));
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                Subscriber subscriber = subscribers.remove(session.getId());
+                if (subscriber != null) {
+                    subscriber.clear();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * Takes frames for known sessions off the outbound channel; anything else goes through.
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        Subscriber subscriber = sessionId != null ? subscribers.get(sessionId) : null;
+        if (subscriber == null || webSocketHandler == null) {
+            return message;
+        }
+        if (!subscriber.closing) {
+            enqueue(subscriber, message);
+        }
+        return null;
+    }
+
+    private void enqueue(Subscriber subscriber, Message<?> message) {
+        boolean droppable = SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE;
+        String conflationKey = droppable ? conflationKey(message) : null;
+        synchronized (subscriber) {
+            Slot queued = conflationKey != null ? subscriber.conflatable.get(conflationKey) : null;
+            if (queued != null) {
+                queued.message = message;
+                subscriber.conflated.increment();
+                conflated.increment();
+                return;
+            }
+            if (droppable && subscriber.buffer.size() >= bufferSize && dropOldest(subscriber)) {
+                subscriber.dropped.increment();
+                dropped.increment();
+            }
+            Slot slot = new Slot(message, conflationKey, droppable);
+            subscriber.buffer.add(slot);
+            if (conflationKey != null) {
+                subscriber.conflatable.put(conflationKey, slot);
+            }
+        }
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> drain(subscriber));
+        }
+    }
+
+    /**
+     * Connection frames (CONNECTED, RECEIPT, ERROR, heartbeats) are never dropped.
+     */
+    private static boolean dropOldest(Subscriber subscriber) {
+        Iterator<Slot> iterator = subscriber.buffer.iterator();
+        while (iterator.hasNext()) {
+            Slot slot = iterator.next();
+            if (slot.droppable) {
+                iterator.remove();
+                if (slot.conflationKey != null) {
+                    subscriber.conflatable.remove(slot.conflationKey);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String conflationKey(Message<?> message) {
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null) {
+            return null;
+        }
+        for (String pattern : conflateDestinations) {
+            if (pathMatcher.match(pattern, destination)) {
+                return SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()) + destination;
+            }
+        }
+        return null;
+    }
+
+    private void drain(Subscriber subscriber) {
+        Message<?> message;
+        int sent = 0;
+        while (sent < DRAIN_BATCH && (message = subscriber.poll()) != null) {
+            try {
+                webSocketHandler.handleMessage(message);
+                webSocketMetrics.recordStomp(message);
+                subscriber.delivered.increment();
+                delivered.increment();
+            } catch (Exception e) {
+                log.debug("Failed to deliver to WebSocket session {}: {}", subscriber.session.getId(), e.getMessage());
+            }
+            sent++;
+        }
+        subscriber.scheduled.set(false);
+        // Hand the thread to the next session after a batch; reschedule if more arrived
+        if (subscriber.size() > 0 && subscriber.scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> drain(subscriber));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.websocket.fanout.check-ms:1000}")
+    public void checkSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers.values()) {
+            long droppedNow = subscriber.dropped.sum();
+            long oldest = subscriber.oldestNanos();
+            boolean lagging = droppedNow > subscriber.droppedAtCheck || (oldest != 0 && now - oldest > maxLagNanos);
+            subscriber.droppedAtCheck = droppedNow;
+            subscriber.strikes = lagging ? subscriber.strikes + 1 : 0;
+            if (subscriber.strikes >= slowStrikes && !subscriber.closing) {
+                disconnect(subscriber, oldest != 0 ? TimeUnit.NANOSECONDS.toMillis(now - oldest) : 0);
+            }
+        }
+    }
+
+    private void disconnect(Subscriber subscriber, long lagMs) {
+        subscriber.closing = true;
+        int queued = subscriber.size();
+        subscriber.clear();
+        disconnected.increment();
+        log.warn("Disconnecting slow WebSocket client {}: {} messages queued, {} ms behind, {} dropped",
+                subscriber.session.getId(), queued, lagMs, subscriber.dropped.sum());
+        // Closing can block on a stalled socket, so keep it off the scheduler thread
+        executor.execute(() -> {
+            try {
+                subscriber.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (Exception e) {
+                log.debug("Failed to close WebSocket session {}: {}", subscriber.session.getId(), e.getMessage());
+            }
+        });
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public int getQueuedMessages() {
+        int queued = 0;
+        for (Subscriber subscriber : subscribers.values()) {
+            queued += subscriber.size();
+        }
+        return queued;
+    }
+
+    /**
+     * Subscribers by lag, oldest queued message age in milliseconds, largest first.
+     */
+    public Map<String, Long> getSubscriberLag() {
+        long now = System.nanoTime();
+        Map<String, Long> lag = new HashMap<>();
+        for (Subscriber subscriber : subscribers.values()) {
+            long oldest = subscriber.oldestNanos();
+            lag.put(subscriber.session.getId(), oldest != 0 ? TimeUnit.NANOSECONDS.toMillis(now - oldest) : 0);
+        }
+        return lag;
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getConflatedCount() {
+        return conflated.sum();
+    }
+
+    public long getDisconnectedCount() {
+        return disconnected.sum();
+    }
+
+    public List<Map<String, Object>> getMetrics() {
+        long now = System.nanoTime();
+        List<Map<String, Object>> metrics = new ArrayList<>();
+        for (Subscriber subscriber : subscribers.values()) {
+            long oldest = subscriber.oldestNanos();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("sessionId", subscriber.session.getId());
+            entry.put("queued", subscriber.size());
+            entry.put("lagMs", oldest != 0 ? TimeUnit.NANOSECONDS.toMillis(now - oldest) : 0);
+            entry.put("delivered", subscriber.delivered.sum());
+            entry.put("dropped", subscriber.dropped.sum());
+            entry.put("conflated", subscriber.conflated.sum());
+            entry.put("strikes", subscriber.strikes);
+            metrics.add(entry);
+        }
+        metrics.sort(Comparator.comparing((Map<String, Object> entry) -> (Long) entry.get("lagMs")).reversed());
+        return metrics;
+    }
+}
@@ -1,13 +1,22 @@
 package com.examshield.config;
 
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.*;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     
+    private final SubscriberFanout subscriberFanout;
+    
+    @Value("${app.websocket.native-path:/ws/native}")
+    private String nativePath;
+    
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic", "/queue");
@@ -15,14 +24,29 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         config.setUserDestinationPrefix("/user");
     }
     
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(subscriberFanout);
+    }
+    
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(subscriberFanout);
+    }
+    
+    /**
+     * Browsers that may need HTTP fallbacks connect through SockJS on {@code /ws}; other
+     * clients speak STOMP over a plain WebSocket on {@code native-path}, without SockJS
+     * framing. Both reach the same destinations. Tomcat negotiates permessage-deflate on
+     * either WebSocket when the client offers it.
+     */
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
         
-        registry.addEndpoint("/ws")
-                .setAllowedOriginPatterns("*")
-                .withSockJS();
+        registry.addEndpoint(nativePath)
+                .setAllowedOriginPatterns("*");
     }
 }
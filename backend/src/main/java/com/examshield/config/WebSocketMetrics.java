@@ -0,0 +1,84 @@
+package com.examshield.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts outbound WebSocket messages and payload bytes. STOMP frames are counted as
+ * {@link SubscriberFanout} delivers them and tagged with the destination minus its trailing ids
+ * ({@code /topic/session/42} becomes {@code /topic/session}), so the number of series is
+ * bounded by the destinations the application publishes to, not by the number of sessions.
+ */
+@Component
+public class WebSocketMetrics {
+
+    private static final int MAX_DESTINATIONS = 64;
+    private static final String OTHER = "other";
+
+    private final MeterRegistry registry;
+    private final Map<String, Counter[]> counters = new ConcurrentHashMap<>();
+
+    public WebSocketMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordStomp(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return;
+        }
+        Object payload = message.getPayload();
+        int bytes = payload instanceof byte[] data ? data.length : 0;
+        // User destinations are resolved per session (/queue/ingest-user{id}); tag the one subscribed to
+        String destination = SimpMessageHeaderAccessor.getFirstNativeHeader(
+                SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, message.getHeaders());
+        if (destination == null) {
+            destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        }
+        recordOutbound("stomp", destinationTag(destination), bytes);
+    }
+
+    public void recordOutbound(String transport, String destination, int bytes) {
+        Counter[] meters = counters.get(transport + destination);
+        if (meters == null) {
+            String tag = counters.size() < MAX_DESTINATIONS ? destination : OTHER;
+            meters = counters.computeIfAbsent(transport + tag, key -> new Counter[]{
+                    Counter.builder("examshield.websocket.outbound.messages")
+                            .description("Messages sent to WebSocket clients")
+                            .tag("transport", transport)
+                            .tag("destination", tag)
+                            .register(registry),
+                    Counter.builder("examshield.websocket.outbound.bytes")
+                            .description("Payload bytes sent to WebSocket clients")
+                            .baseUnit("bytes")
+                            .tag("transport", transport)
+                            .tag("destination", tag)
+                            .register(registry)
+            });
+        }
+        meters[0].increment();
+        meters[1].increment(bytes);
+    }
+
+    static String destinationTag(String destination) {
+        if (destination == null) {
+            return "none";
+        }
+        int end = destination.length();
+        while (end > 0) {
+            int slash = destination.lastIndexOf('/', end - 1);
+            String segment = destination.substring(slash + 1, end);
+            if (!segment.isEmpty() && !segment.chars().allMatch(Character::isDigit)) {
+                break;
+            }
+            end = Math.max(slash, 0);
+        }
+        return end > 0 ? destination.substring(0, end) : "/";
+    }
+}
@@ -0,0 +1,78 @@
+package com.examshield.controller;
+
+import com.examshield.config.WebSocketMetrics;
+import com.examshield.dto.BinaryDetectionFrame;
+import com.examshield.dto.FrameIngestResultDTO;
+import com.examshield.service.BinaryDetectionCodec;
+import com.examshield.service.DetectionService;
+import com.examshield.service.IngestMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Raw WebSocket endpoint for the binary ingest protocol described in
+ * {@link BinaryDetectionCodec}. Every message is answered with an ACK (plus SLOW_DOWN when
+ * detections were shed) or an ERROR record.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BinaryDetectionHandler extends BinaryWebSocketHandler {
+
+    private static final String CODEC_ATTRIBUTE = "binaryDetectionCodec";
+
+    private final DetectionService detectionService;
+    private final IngestMetrics ingestMetrics;
+    private final WebSocketMetrics webSocketMetrics;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        session.getAttributes().put(CODEC_ATTRIBUTE, new BinaryDetectionCodec());
+        log.debug("Binary ingest connection opened: {}", session.getId());
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        BinaryDetectionCodec codec = (BinaryDetectionCodec) session.getAttributes().get(CODEC_ATTRIBUTE);
+
+        List<BinaryDetectionFrame> frames;
+        try {
+            frames = codec.decode(message.getPayload());
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            send(session, "error", BinaryDetectionCodec.encodeError("Malformed message: " + e.getMessage()));
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            FrameIngestResultDTO result = detectionService.processBinaryFrames(frames);
+            ingestMetrics.recorded(IngestMetrics.Endpoint.BINARY, start, result);
+            send(session, "ack", BinaryDetectionCodec.encodeAck(result));
+        } catch (Exception e) {
+            ingestMetrics.failed(IngestMetrics.Endpoint.BINARY, start);
+            log.error("Error processing binary detections: {}", e.getMessage());
+            send(session, "error", BinaryDetectionCodec.encodeError(String.valueOf(e.getMessage())));
+        }
+    }
+
+    private void send(WebSocketSession session, String type, ByteBuffer payload) throws IOException {
+        int bytes = payload.remaining();
+        session.sendMessage(new BinaryMessage(payload));
+        webSocketMetrics.recordOutbound("binary", type, bytes);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        log.debug("Binary ingest connection closed: {} ({})", session.getId(), status);
+    }
+}
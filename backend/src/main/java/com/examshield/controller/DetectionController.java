@@ -2,6 +2,9 @@ package com.examshield.controller;
 
 import com.examshield.dto.*;
 import com.examshield.service.DetectionService;
+import com.examshield.service.FrameLatencyTracker;
+import com.examshield.service.IngestMetrics;
+import com.examshield.service.IngestOverloadedException;
 import com.examshield.service.VideoProcessingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +24,8 @@ public class DetectionController {
     
     private final DetectionService detectionService;
     private final VideoProcessingService videoProcessingService;
+    private final IngestMetrics ingestMetrics;
+    private final FrameLatencyTracker frameLatencyTracker;
     
     @PostMapping("/stream")
     public ResponseEntity<ProcessingJobDTO> startStreamDetection(@RequestParam Long sessionId, @RequestParam String streamUrl) {
@@ -40,18 +45,28 @@ public class DetectionController {
     }
     
     @PostMapping("/process")
-    public ResponseEntity<DetectionEventDTO> processDetection(@RequestBody RealTimeDetectionDTO detectionDTO) {
-        if (detectionDTO.getDetections() != null && !detectionDTO.getDetections().isEmpty()) {
-            for (RealTimeDetectionDTO.DetectionResult detection : detectionDTO.getDetections()) {
-                detectionService.processDetection(detectionDTO.getSessionId(), detection);
-            }
-        }
-        
-        if (detectionDTO.getHeadCount() != null) {
-            detectionService.updateHeadCount(detectionDTO.getSessionId(), detectionDTO.getHeadCount().getDetected());
+    public ResponseEntity<FrameIngestResultDTO> processDetection(@RequestBody RealTimeDetectionDTO detectionDTO) {
+        return ResponseEntity.ok(ingest(IngestMetrics.Endpoint.HTTP_PROCESS, List.of(detectionDTO)));
+    }
+    
+    @PostMapping("/frames")
+    public ResponseEntity<FrameIngestResultDTO> processFrames(@RequestBody List<RealTimeDetectionDTO> frames) {
+        return ResponseEntity.ok(ingest(IngestMetrics.Endpoint.HTTP_FRAMES, frames));
+    }
+    
+    private FrameIngestResultDTO ingest(IngestMetrics.Endpoint endpoint, List<RealTimeDetectionDTO> frames) {
+        long start = System.nanoTime();
+        try {
+            FrameIngestResultDTO result = detectionService.processFrames(frames);
+            ingestMetrics.recorded(endpoint, start, result);
+            return result;
+        } catch (IngestOverloadedException e) {
+            ingestMetrics.overloaded(endpoint, start, frames.size());
+            throw e;
+        } catch (RuntimeException e) {
+            ingestMetrics.failed(endpoint, start);
+            throw e;
         }
-        
-        return ResponseEntity.ok().build();
     }
     
     @GetMapping("/events/{sessionId}")
@@ -59,6 +74,28 @@ public class DetectionController {
         return ResponseEntity.ok(detectionService.getSessionDetections(sessionId));
     }
     
+    @GetMapping("/snapshot/{sessionId}")
+    public ResponseEntity<SessionSnapshotDTO> getSessionSnapshot(@PathVariable Long sessionId) {
+        return ResponseEntity.ok(detectionService.getSessionSnapshot(sessionId));
+    }
+    
+    @GetMapping("/replay/{sessionId}")
+    public ResponseEntity<SessionReplayDTO> replaySession(@PathVariable Long sessionId,
+                                                          @RequestParam(defaultValue = "0") long epoch,
+                                                          @RequestParam(defaultValue = "0") long after) {
+        return ResponseEntity.ok(detectionService.resumeSession(sessionId, epoch, after));
+    }
+    
+    @GetMapping("/latency")
+    public ResponseEntity<List<FrameLatencyDTO>> getFrameLatency() {
+        return ResponseEntity.ok(frameLatencyTracker.getLatency());
+    }
+    
+    @GetMapping("/latency/{sessionId}")
+    public ResponseEntity<FrameLatencyDTO> getSessionFrameLatency(@PathVariable Long sessionId) {
+        return ResponseEntity.ok(frameLatencyTracker.getSessionLatency(sessionId));
+    }
+    
     @GetMapping("/scores/{sessionId}")
     public ResponseEntity<List<StudentScoreDTO>> getSessionScores(@PathVariable Long sessionId) {
         return ResponseEntity.ok(detectionService.getSessionStudentScores(sessionId));
@@ -68,4 +105,9 @@ public class DetectionController {
     public ResponseEntity<RealTimeDetectionDTO.SessionStats> getSessionStats(@PathVariable Long sessionId) {
         return ResponseEntity.ok(detectionService.calculateSessionStats(sessionId));
     }
+    
+    @GetMapping("/stats/{sessionId}/verify")
+    public ResponseEntity<Map<String, Object>> verifySessionStats(@PathVariable Long sessionId) throws InterruptedException {
+        return ResponseEntity.ok(detectionService.verifySessionStats(sessionId));
+    }
 }
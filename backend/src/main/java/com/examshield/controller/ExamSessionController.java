@@ -65,6 +65,11 @@ public class ExamSessionController {
         return ResponseEntity.ok(examSessionService.updateHeadCount(id, count));
     }
     
+    @PutMapping("/{id}/scoring-policy")
+    public ResponseEntity<ExamSessionDTO> updateScoringPolicy(@PathVariable Long id, @RequestParam(required = false) Long policyId) {
+        return ResponseEntity.ok(examSessionService.updateScoringPolicy(id, policyId));
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteSession(@PathVariable Long id) {
         examSessionService.deleteSession(id);
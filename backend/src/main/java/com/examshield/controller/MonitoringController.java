@@ -0,0 +1,102 @@
+package com.examshield.controller;
+
+import com.examshield.config.SubscriberFanout;
+import com.examshield.service.DetectionAdmissionService;
+import com.examshield.service.DetectionConfirmationStage;
+import com.examshield.service.DetectionCooldownTable;
+import com.examshield.service.DetectionPersistenceService;
+import com.examshield.service.SessionMailboxService;
+import com.examshield.service.WalCheckpointService;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitoring")
+@RequiredArgsConstructor
+public class MonitoringController {
+    
+    private final DetectionCooldownTable detectionCooldownTable;
+    private final DetectionAdmissionService detectionAdmissionService;
+    private final DetectionConfirmationStage detectionConfirmationStage;
+    private final DetectionPersistenceService detectionPersistenceService;
+    private final SessionMailboxService sessionMailboxService;
+    private final WalCheckpointService walCheckpointService;
+    private final SubscriberFanout subscriberFanout;
+    private final HikariDataSource writeDataSource;
+    private final HikariDataSource readDataSource;
+    
+    @GetMapping("/cooldown")
+    public ResponseEntity<Map<String, Object>> getCooldownMetrics() {
+        return ResponseEntity.ok(detectionCooldownTable.getMetrics());
+    }
+    
+    @GetMapping("/admission")
+    public ResponseEntity<Map<String, Object>> getAdmissionMetrics() {
+        return ResponseEntity.ok(detectionAdmissionService.getMetrics());
+    }
+    
+    @GetMapping("/confirmation")
+    public ResponseEntity<Map<String, Object>> getConfirmationMetrics() {
+        return ResponseEntity.ok(detectionConfirmationStage.getMetrics());
+    }
+    
+    @GetMapping("/persistence")
+    public ResponseEntity<Map<String, Object>> getPersistenceMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("writeBehind", detectionPersistenceService.isWriteBehindEnabled());
+        metrics.put("queueDepth", detectionPersistenceService.getQueueDepth());
+        metrics.put("persisted", detectionPersistenceService.getPersistedCount());
+        metrics.put("failed", detectionPersistenceService.getFailedCount());
+        metrics.put("synchronousFallbacks", detectionPersistenceService.getSynchronousFallbackCount());
+        return ResponseEntity.ok(metrics);
+    }
+    
+    @GetMapping("/mailboxes")
+    public ResponseEntity<Map<String, Object>> getMailboxMetrics() {
+        List<Map<String, Object>> sessions = sessionMailboxService.getMetrics();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("mailboxes", sessions.size());
+        metrics.put("totalQueueDepth", sessionMailboxService.getTotalQueueDepth());
+        metrics.put("sessions", sessions);
+        return ResponseEntity.ok(metrics);
+    }
+    
+    @GetMapping("/subscribers")
+    public ResponseEntity<Map<String, Object>> getSubscriberMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("subscribers", subscriberFanout.getSubscriberCount());
+        metrics.put("queued", subscriberFanout.getQueuedMessages());
+        metrics.put("delivered", subscriberFanout.getDeliveredCount());
+        metrics.put("dropped", subscriberFanout.getDroppedCount());
+        metrics.put("conflated", subscriberFanout.getConflatedCount());
+        metrics.put("disconnected", subscriberFanout.getDisconnectedCount());
+        metrics.put("clients", subscriberFanout.getMetrics());
+        return ResponseEntity.ok(metrics);
+    }
+    
+    @GetMapping("/storage")
+    public ResponseEntity<Map<String, Object>> getStorageMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("writer", poolMetrics(writeDataSource));
+        metrics.put("reader", poolMetrics(readDataSource));
+        metrics.put("walCheckpoint", walCheckpointService.getMetrics());
+        return ResponseEntity.ok(metrics);
+    }
+    
+    private Map<String, Object> poolMetrics(HikariDataSource dataSource) {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", dataSource.getMaximumPoolSize());
+        metrics.put("active", pool != null ? pool.getActiveConnections() : 0);
+        metrics.put("idle", pool != null ? pool.getIdleConnections() : 0);
+        metrics.put("waiting", pool != null ? pool.getThreadsAwaitingConnection() : 0);
+        return metrics;
+    }
+}
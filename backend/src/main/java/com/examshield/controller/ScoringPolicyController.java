@@ -0,0 +1,51 @@
+package com.examshield.controller;
+
+import com.examshield.dto.ScoringPolicyDTO;
+import com.examshield.service.ScoringPolicyService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/scoring-policies")
+@RequiredArgsConstructor
+@Slf4j
+public class ScoringPolicyController {
+
+    private final ScoringPolicyService scoringPolicyService;
+
+    @GetMapping
+    public ResponseEntity<List<ScoringPolicyDTO>> getAllPolicies() {
+        return ResponseEntity.ok(scoringPolicyService.getAllPolicies());
+    }
+
+    @GetMapping("/default")
+    public ResponseEntity<ScoringPolicyDTO> getDefaultPolicy() {
+        return ResponseEntity.ok(scoringPolicyService.getDefaultPolicy());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ScoringPolicyDTO> getPolicy(@PathVariable Long id) {
+        return ResponseEntity.ok(scoringPolicyService.getPolicy(id));
+    }
+
+    @PostMapping
+    public ResponseEntity<ScoringPolicyDTO> createPolicy(@RequestBody ScoringPolicyDTO request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(scoringPolicyService.createPolicy(request));
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<ScoringPolicyDTO> updatePolicy(@PathVariable Long id, @RequestBody ScoringPolicyDTO request) {
+        return ResponseEntity.ok(scoringPolicyService.updatePolicy(id, request));
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<List<ScoringPolicyDTO>> reloadPolicies() {
+        scoringPolicyService.reload();
+        return ResponseEntity.ok(scoringPolicyService.getAllPolicies());
+    }
+}
@@ -0,0 +1,68 @@
+package com.examshield.controller;
+
+import com.examshield.service.DetectionService;
+import com.examshield.service.SessionEventStreams;
+import com.examshield.service.SessionRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Server-Sent Events for read-only consumers: {@code /sessions/{sessionId}} streams a
+ * session's deltas and alerts, starting with a snapshot or, after a reconnect, the updates
+ * missed since {@code Last-Event-ID}, an {@code epoch:seq} pair; {@code /sessions} streams the counters of all active
+ * sessions and starts over with a fresh overview on every connect. An unknown session id
+ * is answered with 404 rather than a stream that would never carry anything.
+ */
+@RestController
+@RequestMapping("/api/stream")
+@RequiredArgsConstructor
+public class StreamController {
+
+    private final DetectionService detectionService;
+    private final SessionEventStreams sessionEventStreams;
+    private final SessionRegistry sessionRegistry;
+
+    @GetMapping(path = "/sessions/{sessionId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamSession(
+            @PathVariable Long sessionId,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(name = "lastEventId", required = false) String lastEventIdParam) {
+        if (sessionRegistry.find(sessionId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        long[] position = parsePosition(lastEventId != null ? lastEventId : lastEventIdParam);
+        return ResponseEntity.ok(sessionEventStreams.openSession(sessionId,
+                () -> detectionService.resumeSession(sessionId, position[0], position[1])));
+    }
+
+    @GetMapping(path = "/sessions", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOverview() {
+        return sessionEventStreams.openOverview(detectionService::getSessionOverview);
+    }
+
+    /**
+     * Epoch and sequence number of an {@code epoch:seq} event id; epoch 0 and seq -1 for a
+     * missing or unusable id: never issued, so the client gets a snapshot.
+     */
+    private static long[] parsePosition(String lastEventId) {
+        long[] unknown = {0, -1};
+        if (lastEventId == null) {
+            return unknown;
+        }
+        int separator = lastEventId.indexOf(':');
+        if (separator < 0) {
+            return unknown;
+        }
+        try {
+            return new long[]{
+                    Long.parseLong(lastEventId.substring(0, separator).trim()),
+                    Long.parseLong(lastEventId.substring(separator + 1).trim())
+            };
+        } catch (NumberFormatException e) {
+            return unknown;
+        }
+    }
+}
@@ -1,14 +1,27 @@
 package com.examshield.controller;
 
+import com.examshield.dto.FrameIngestResultDTO;
 import com.examshield.dto.RealTimeDetectionDTO;
+import com.examshield.dto.SessionReplayDTO;
+import com.examshield.dto.SessionSnapshotDTO;
 import com.examshield.service.DetectionService;
+import com.examshield.service.IngestMetrics;
+import com.examshield.service.IngestOverloadedException;
+import com.examshield.service.SessionBroadcastService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Controller
 @RequiredArgsConstructor
 @Slf4j
@@ -16,39 +29,77 @@ public class WebSocketController {
     
     private final SimpMessagingTemplate messagingTemplate;
     private final DetectionService detectionService;
+    private final IngestMetrics ingestMetrics;
+    private final SessionBroadcastService sessionBroadcastService;
     
+    /**
+     * Ingests one frame. The result goes back only to the sending connection, on
+     * /user/queue/ingest, tagged with the frame's job id; dashboards follow the
+     * session's deltas on /topic/session/{sessionId} instead.
+     */
     @MessageMapping("/detections")
-    @SendTo("/topic/detections")
-    public RealTimeDetectionDTO handleDetection(RealTimeDetectionDTO detectionDTO) {
+    @SendToUser(destinations = "/queue/ingest", broadcast = false)
+    public FrameIngestResultDTO handleDetection(RealTimeDetectionDTO detectionDTO) {
         log.debug("Received detection from session: {}", detectionDTO.getSessionId());
         
-        if (detectionDTO.getDetections() != null && !detectionDTO.getDetections().isEmpty()) {
-            for (RealTimeDetectionDTO.DetectionResult detection : detectionDTO.getDetections()) {
-                try {
-                    detectionService.processDetection(detectionDTO.getSessionId(), detection);
-                } catch (Exception e) {
-                    log.error("Error processing detection: {}", e.getMessage());
-                }
+        long start = System.nanoTime();
+        try {
+            FrameIngestResultDTO result = detectionService.processFrames(List.of(detectionDTO));
+            ingestMetrics.recorded(IngestMetrics.Endpoint.STOMP, start, result);
+            if (result.getShed() > 0) {
+                sendBackpressure(detectionDTO.getSessionId(), "SLOW_DOWN", result.getShed(), result.getRetryAfterMs());
             }
+            result.setJobId(detectionDTO.getJobId());
+            return result;
+        } catch (IngestOverloadedException e) {
+            ingestMetrics.overloaded(IngestMetrics.Endpoint.STOMP, start, 1);
+            int detections = detectionDTO.getDetections() != null ? detectionDTO.getDetections().size() : 0;
+            sendBackpressure(detectionDTO.getSessionId(), "OVERLOADED", detections, e.getRetryAfterMs());
+        } catch (Exception e) {
+            ingestMetrics.failed(IngestMetrics.Endpoint.STOMP, start);
+            log.error("Error processing detection: {}", e.getMessage());
         }
-        
-        if (detectionDTO.getHeadCount() != null) {
-            detectionService.updateHeadCount(detectionDTO.getSessionId(), detectionDTO.getHeadCount().getDetected());
-        }
-        
-        RealTimeDetectionDTO.SessionStats stats = detectionService.calculateSessionStats(detectionDTO.getSessionId());
-        detectionDTO.setSessionStats(stats);
-        
-        return detectionDTO;
+        return null;
+    }
+    
+    /**
+     * Full session state, sent to the subscriber alone when it subscribes to
+     * /app/session/{sessionId}/snapshot. Dashboards subscribe to the delta and alert
+     * topics first, then to this.
+     */
+    @SubscribeMapping("/session/{sessionId}/snapshot")
+    public SessionSnapshotDTO sessionSnapshot(@DestinationVariable Long sessionId) {
+        return detectionService.getSessionSnapshot(sessionId);
+    }
+    
+    /**
+     * Updates missed since sequence number {@code last-seq} of stream {@code epoch} (headers
+     * of the SUBSCRIBE to /app/session/{sessionId}/resume), sent to the subscriber alone.
+     * Dashboards subscribe here after re-subscribing to the topics on reconnect, or when
+     * they see a gap in {@code seq} or a new {@code epoch}, and drop live updates the reply
+     * already covered.
+     */
+    @SubscribeMapping("/session/{sessionId}/resume")
+    public SessionReplayDTO resumeSession(@DestinationVariable Long sessionId,
+                                          @Header(name = "epoch", defaultValue = "0") long epoch,
+                                          @Header(name = "last-seq", defaultValue = "0") long lastSeq) {
+        return detectionService.resumeSession(sessionId, epoch, lastSeq);
     }
     
-    public void broadcastDetection(RealTimeDetectionDTO detectionDTO) {
-        messagingTemplate.convertAndSend("/topic/detections", detectionDTO);
-        messagingTemplate.convertAndSend("/topic/session/" + detectionDTO.getSessionId(), detectionDTO);
+    /**
+     * Tells detectors publishing for this session to back off; sent on
+     * /topic/backpressure/{sessionId} whenever detections were shed.
+     */
+    private void sendBackpressure(Long sessionId, String status, int shed, Long retryAfterMs) {
+        Map<String, Object> signal = new HashMap<>();
+        signal.put("sessionId", sessionId);
+        signal.put("status", status);
+        signal.put("shed", shed);
+        signal.put("retryAfterMs", retryAfterMs);
+        messagingTemplate.convertAndSend("/topic/backpressure/" + sessionId, signal);
     }
     
     public void broadcastAlert(Long sessionId, String alertMessage, String alertLevel) {
-        messagingTemplate.convertAndSend("/topic/alerts/" + sessionId, 
-                java.util.Map.of("message", alertMessage, "level", alertLevel));
+        sessionBroadcastService.publishAlert(sessionId, alertMessage, alertLevel);
     }
 }
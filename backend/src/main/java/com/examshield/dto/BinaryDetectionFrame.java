@@ -0,0 +1,66 @@
+package com.examshield.dto;
+
+import com.examshield.model.DetectionEvent;
+import lombok.Getter;
+
+/**
+ * One frame decoded from the binary ingest protocol. Detections are kept in parallel
+ * arrays instead of one object per detection; an entry whose event type or person id
+ * could not be resolved is {@code null} and is rejected by the pipeline.
+ */
+@Getter
+public class BinaryDetectionFrame {
+
+    public static final int NO_HEAD_COUNT = -1;
+
+    private final long sessionId;
+    private final int frameNumber;
+    private final int headCount;
+    private final int size;
+    private final DetectionEvent.EventType[] eventTypes;
+    private final String[] personIds;
+    private final double[] confidences;
+    private final short[] boxes;
+
+    public BinaryDetectionFrame(long sessionId, int frameNumber, int headCount, int size) {
+        this.sessionId = sessionId;
+        this.frameNumber = frameNumber;
+        this.headCount = headCount;
+        this.size = size;
+        this.eventTypes = new DetectionEvent.EventType[size];
+        this.personIds = new String[size];
+        this.confidences = new double[size];
+        this.boxes = new short[size * 4];
+    }
+
+    public void set(int index, DetectionEvent.EventType eventType, String personId, double confidence,
+                    short x, short y, short width, short height) {
+        eventTypes[index] = eventType;
+        personIds[index] = personId;
+        confidences[index] = confidence;
+        boxes[index * 4] = x;
+        boxes[index * 4 + 1] = y;
+        boxes[index * 4 + 2] = width;
+        boxes[index * 4 + 3] = height;
+    }
+
+    public boolean hasBox(int index) {
+        return boxes[index * 4 + 2] >= 0;
+    }
+
+    public int getX(int index) {
+        return boxes[index * 4];
+    }
+
+    public int getY(int index) {
+        return boxes[index * 4 + 1];
+    }
+
+    public int getWidth(int index) {
+        return boxes[index * 4 + 2];
+    }
+
+    public int getHeight(int index) {
+        return boxes[index * 4 + 3];
+    }
+}
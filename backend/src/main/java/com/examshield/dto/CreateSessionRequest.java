@@ -17,4 +17,6 @@ public class CreateSessionRequest {
     private Integer expectedCount;
     
     private String streamUrl;
+    
+    private Long scoringPolicyId;
 }
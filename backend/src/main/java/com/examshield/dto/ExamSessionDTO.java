@@ -20,6 +20,7 @@ public class ExamSessionDTO {
     private String streamUrl;
     private Integer totalViolations;
     private Double totalScore;
+    private Long scoringPolicyId;
     private LocalDateTime createdAt;
     
     public static ExamSessionDTO fromEntity(ExamSession session) {
@@ -34,6 +35,7 @@ public class ExamSessionDTO {
                 .streamUrl(session.getStreamUrl())
                 .totalViolations(session.getTotalViolations())
                 .totalScore(session.getTotalScore())
+                .scoringPolicyId(session.getScoringPolicyId())
                 .createdAt(session.getCreatedAt())
                 .build();
     }
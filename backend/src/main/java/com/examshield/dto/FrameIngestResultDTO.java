@@ -0,0 +1,43 @@
+package com.examshield.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FrameIngestResultDTO {
+    
+    private String jobId;
+    private Integer frames;
+    private Integer accepted;
+    private Integer cooledDown;
+    private Integer rejected;
+    private Integer pending;
+    private Integer shed;
+    private Long retryAfterMs;
+    private List<DetectionOutcome> outcomes;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class DetectionOutcome {
+        private Long sessionId;
+        private Integer frameNumber;
+        private Integer index;
+        private String personId;
+        private String eventType;
+        private Status status;
+        private String reason;
+    }
+    
+    public enum Status {
+        ACCEPTED,
+        PENDING,
+        COOLED_DOWN,
+        REJECTED,
+        SHED
+    }
+}
@@ -0,0 +1,30 @@
+package com.examshield.dto;
+
+import lombok.*;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FrameLatencyDTO {
+
+    private Long sessionId;
+    private Long frames;
+    private Long slowFrames;
+    private Map<String, StageLatency> stages;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class StageLatency {
+        private Long count;
+        private Double meanMs;
+        private Double p50Ms;
+        private Double p90Ms;
+        private Double p99Ms;
+        private Double p999Ms;
+        private Double maxMs;
+    }
+}
@@ -0,0 +1,59 @@
+package com.examshield.dto;
+
+import com.examshield.model.DetectionEvent;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScoringPolicyDTO {
+
+    private Long id;
+    private String name;
+    private Integer version;
+    private LocalDateTime updatedAt;
+    private Definition definition;
+
+    /**
+     * Scoring rules of a policy. Every field is optional; anything left out falls back to
+     * the built-in policy, and {@code points} and {@code labels} are merged over it.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Definition {
+        private Map<DetectionEvent.EventType, Integer> points;
+        private Integer defaultPoints;
+        private Map<String, DetectionEvent.EventType> labels;
+        private DetectionEvent.EventType defaultEventType;
+        private Double scoreMultiplier;
+        private StudentThresholds studentThresholds;
+        private AlertThresholds alertThresholds;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class StudentThresholds {
+        private Double watch;
+        private Double suspicious;
+        private Double critical;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class AlertThresholds {
+        private Double yellow;
+        private Double orange;
+        private Double red;
+        private Double critical;
+    }
+}
@@ -0,0 +1,31 @@
+package com.examshield.dto;
+
+import lombok.*;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What changed in a live session since the previous delta, published on
+ * {@code /topic/session/{sessionId}}. Versions increase by one per delta; a client holding
+ * version {@code n} applies the delta with version {@code n + 1}. {@code seq} numbers the
+ * session's deltas and alerts together, so a client that sees a gap in it can resume the
+ * stream from the last one it saw, together with its {@code epoch} (see {@link SessionReplayDTO}). {@code stats} holds only
+ * the counters that changed, under their {@link RealTimeDetectionDTO.SessionStats} names;
+ * {@code alerts} carries non-critical alerts raised since the previous delta.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionDeltaDTO {
+
+    private Long sessionId;
+    private Long version;
+    private Long epoch;
+    private Long seq;
+    private Long timestamp;
+    private List<StudentScoreDTO> scores;
+    private List<DetectionEventDTO> events;
+    private Map<String, Object> stats;
+    private List<Map<String, Object>> alerts;
+}
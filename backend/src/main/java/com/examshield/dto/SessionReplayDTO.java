@@ -0,0 +1,28 @@
+package com.examshield.dto;
+
+import lombok.*;
+import java.util.List;
+
+/**
+ * Answer to a client resuming a session's update stream after sequence number
+ * {@code n}: the updates after {@code n} up to {@code seq}, oldest first, or, when some of
+ * them are no longer buffered, a {@code snapshot} instead (and no {@code updates}).
+ * After a snapshot the client carries on from {@code seq}, dropping deltas whose version
+ * the snapshot already covers.
+ * <p>
+ * Sequence numbers start over whenever the session's stream restarts, for instance after
+ * a server restart; {@code epoch} tells the streams apart. A resume from a different epoch
+ * always gets a snapshot. Epochs only ever grow.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionReplayDTO {
+
+    private Long sessionId;
+    private Long epoch;
+    private Long seq;
+    private List<SessionUpdateDTO> updates;
+    private SessionSnapshotDTO snapshot;
+}
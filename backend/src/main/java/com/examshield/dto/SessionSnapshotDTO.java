@@ -0,0 +1,22 @@
+package com.examshield.dto;
+
+import lombok.*;
+import java.util.List;
+
+/**
+ * Full state of a session as of delta {@code version}: every student score and the
+ * session stats. Deltas with a version up to and including this one are already
+ * reflected and can be dropped.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionSnapshotDTO {
+
+    private Long sessionId;
+    private Long version;
+    private Long timestamp;
+    private List<StudentScoreDTO> scores;
+    private RealTimeDetectionDTO.SessionStats stats;
+}
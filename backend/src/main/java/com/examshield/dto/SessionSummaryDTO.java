@@ -0,0 +1,21 @@
+package com.examshield.dto;
+
+import lombok.*;
+
+/**
+ * One active session in the overview stream: its counters as of update {@code seq} of the
+ * session's update stream {@code epoch}, so later {@code stats} events with a higher
+ * {@code seq}, or from a later epoch, apply on top of it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionSummaryDTO {
+
+    private Long sessionId;
+    private String name;
+    private Long epoch;
+    private Long seq;
+    private RealTimeDetectionDTO.SessionStats stats;
+}
@@ -0,0 +1,27 @@
+package com.examshield.dto;
+
+import lombok.*;
+import java.util.Map;
+
+/**
+ * One entry of a session's update stream as kept for replay: the delta published on
+ * {@code /topic/session/{sessionId}} or the alert published on
+ * {@code /topic/alerts/{sessionId}} under sequence number {@code seq} of stream
+ * {@code epoch}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionUpdateDTO {
+
+    public enum UpdateType {
+        DELTA, ALERT
+    }
+
+    private Long epoch;
+    private Long seq;
+    private UpdateType type;
+    private SessionDeltaDTO delta;
+    private Map<String, Object> alert;
+}
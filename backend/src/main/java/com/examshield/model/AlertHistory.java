@@ -13,8 +13,7 @@ import java.time.LocalDateTime;
 public class AlertHistory {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "alert_history_seq")
-    @SequenceGenerator(name = "alert_history_seq", sequenceName = "alert_history_seq", allocationSize = 1)
+    @PooledSequence(name = "alert_history_seq", blockSize = 200)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
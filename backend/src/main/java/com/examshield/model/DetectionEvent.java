@@ -13,8 +13,7 @@ import java.time.LocalDateTime;
 public class DetectionEvent {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detection_event_seq")
-    @SequenceGenerator(name = "detection_event_seq", sequenceName = "detection_event_seq", allocationSize = 1)
+    @PooledSequence(name = "detection_event_seq", blockSize = 1000)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -13,8 +13,7 @@ import java.time.LocalDateTime;
 public class EmailNotification {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_seq")
-    @SequenceGenerator(name = "email_seq", sequenceName = "email_seq", allocationSize = 1)
+    @PooledSequence(name = "email_seq", blockSize = 50)
     private Long id;
     
     @Column(name = "recipient_email", nullable = false)
@@ -13,8 +13,7 @@ import java.time.LocalDateTime;
 public class ExamSession {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "exam_session_seq")
-    @SequenceGenerator(name = "exam_session_seq", sequenceName = "exam_session_seq", allocationSize = 1)
+    @PooledSequence(name = "exam_session_seq", blockSize = 10)
     private Long id;
     
     @Column(nullable = false)
@@ -45,6 +44,9 @@ public class ExamSession {
     @Column(name = "total_score")
     private Double totalScore;
     
+    @Column(name = "scoring_policy_id")
+    private Long scoringPolicyId;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
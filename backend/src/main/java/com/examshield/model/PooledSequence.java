@@ -0,0 +1,22 @@
+package com.examshield.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates ids from blocks of {@link #blockSize()} reserved in the table {@link #name()},
+ * see {@link PooledSequenceGenerator}.
+ */
+@IdGeneratorType(PooledSequenceGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface PooledSequence {
+
+    String name();
+
+    int blockSize() default 50;
+}
@@ -0,0 +1,112 @@
+package com.examshield.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerationException;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Hands out ids from an in-memory block and only touches the database when the block
+ * is used up. A new block is reserved by advancing {@code next_val} in the sequence
+ * table on the connection of the current transaction, so no second connection has to
+ * take SQLite's write lock while the caller's transaction may hold it.
+ * <p>
+ * Every reservation starts at or above {@code max(id) + 1} of the entity table, which
+ * keeps ids unique after a restart and when moving from the old one-id-per-round-trip
+ * sequences, and at or above the end of the block already handed out in memory: if a
+ * reserving transaction rolls back, {@code next_val} goes back but that block's ids may
+ * still be in use by unflushed entities that {@code max(id)} cannot see. Unused ids of a
+ * block are skipped.
+ */
+public class PooledSequenceGenerator implements IdentifierGenerator {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String sequenceTable;
+    private final String entityTable;
+    private final String idColumn;
+    private final int blockSize;
+
+    private long nextId;
+    private long blockEnd;
+    private volatile boolean tableChecked;
+
+    public PooledSequenceGenerator(PooledSequence config, Member member, CustomIdGeneratorCreationContext context) {
+        this.sequenceTable = config.name();
+        this.entityTable = context.getRootClass().getTable().getName();
+        this.idColumn = context.getRootClass().getIdentifier().getColumns().get(0).getName();
+        this.blockSize = config.blockSize();
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        synchronized (this) {
+            if (nextId < blockEnd) {
+                return nextId++;
+            }
+        }
+
+        // Reserve without holding the monitor: the caller may have to wait for the
+        // writer connection, which another thread could hold while it needs an id
+        long handedOut;
+        synchronized (this) {
+            handedOut = blockEnd;
+        }
+        long start = reserveBlock(session.getJdbcCoordinator().getLogicalConnection().getPhysicalConnection(), handedOut);
+        synchronized (this) {
+            if (nextId >= blockEnd) {
+                // Another thread may have installed a block since handedOut was read
+                nextId = Math.max(start, blockEnd);
+                blockEnd = nextId + blockSize;
+            }
+            return nextId++;
+        }
+    }
+
+    private long reserveBlock(Connection connection, long handedOut) {
+        try (Statement statement = connection.createStatement()) {
+            // Write first, so the transaction takes the write lock before it reads
+            boolean hasRow;
+            try {
+                hasRow = statement.executeUpdate("UPDATE " + sequenceTable + " SET next_val = next_val") > 0;
+            } catch (SQLException e) {
+                if (tableChecked) {
+                    throw e;
+                }
+                statement.execute("CREATE TABLE IF NOT EXISTS " + sequenceTable + " (next_val BIGINT)");
+                hasRow = false;
+            }
+            tableChecked = true;
+
+            Long stored = null;
+            try (ResultSet rs = statement.executeQuery("SELECT next_val FROM " + sequenceTable)) {
+                if (rs.next()) {
+                    stored = rs.getLong(1);
+                }
+            }
+
+            long floor;
+            try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(" + idColumn + "), 0) + 1 FROM " + entityTable)) {
+                rs.next();
+                floor = rs.getLong(1);
+            }
+
+            long start = Math.max(stored != null ? Math.max(stored, floor) : floor, handedOut);
+            long end = start + blockSize;
+            if (hasRow) {
+                statement.executeUpdate("UPDATE " + sequenceTable + " SET next_val = " + end);
+            } else {
+                statement.executeUpdate("INSERT INTO " + sequenceTable + " (next_val) VALUES (" + end + ")");
+            }
+            return start;
+        } catch (SQLException e) {
+            throw new IdentifierGenerationException("Could not reserve ids from " + sequenceTable + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -13,8 +13,7 @@ import java.time.LocalDateTime;
 public class ProcessingJob {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "processing_job_seq")
-    @SequenceGenerator(name = "processing_job_seq", sequenceName = "processing_job_seq", allocationSize = 1)
+    @PooledSequence(name = "processing_job_seq", blockSize = 10)
     private Long id;
     
     @Column(nullable = false, unique = true)
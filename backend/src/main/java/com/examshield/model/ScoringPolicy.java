@@ -0,0 +1,47 @@
+package com.examshield.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "scoring_policies")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScoringPolicy {
+
+    @Id
+    @PooledSequence(name = "scoring_policy_seq", blockSize = 10)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String name;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String definition;
+
+    @Column(nullable = false)
+    private Integer version;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (version == null) {
+            version = 1;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -13,8 +13,7 @@ import java.time.LocalDateTime;
 public class StudentScore {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_score_seq")
-    @SequenceGenerator(name = "student_score_seq", sequenceName = "student_score_seq", allocationSize = 1)
+    @PooledSequence(name = "student_score_seq", blockSize = 100)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -27,6 +26,9 @@ public class StudentScore {
     @Column(name = "total_score")
     private Double totalScore;
     
+    @Column(name = "score_updated_at")
+    private LocalDateTime scoreUpdatedAt;
+    
     @Column(name = "violation_count")
     private Integer violationCount;
     
@@ -71,8 +73,8 @@ public class StudentScore {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
-        firstSeen = LocalDateTime.now();
-        lastSeen = LocalDateTime.now();
+        if (firstSeen == null) firstSeen = LocalDateTime.now();
+        if (lastSeen == null) lastSeen = LocalDateTime.now();
         if (totalScore == null) totalScore = 0.0;
         if (violationCount == null) violationCount = 0;
         if (alertLevel == null) alertLevel = AlertLevel.NORMAL;
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -25,6 +26,9 @@ public interface DetectionEventRepository extends JpaRepository<DetectionEvent,
     @Query("SELECT d.eventType, COUNT(d) FROM DetectionEvent d WHERE d.session.id = :sessionId GROUP BY d.eventType")
     List<Object[]> countBySessionIdGroupByEventType(Long sessionId);
     
+    @Query("SELECT d.session.id, d.eventType, COUNT(d) FROM DetectionEvent d WHERE d.session.id IN :sessionIds GROUP BY d.session.id, d.eventType")
+    List<Object[]> countBySessionIdInGroupByEventType(Collection<Long> sessionIds);
+    
     @Query("SELECT DISTINCT d.personId FROM DetectionEvent d WHERE d.session.id = :sessionId")
     List<String> findDistinctPersonIdsBySessionId(Long sessionId);
 }
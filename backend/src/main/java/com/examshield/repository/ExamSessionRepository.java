@@ -2,8 +2,10 @@ package com.examshield.repository;
 
 import com.examshield.model.ExamSession;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -19,4 +21,9 @@ public interface ExamSessionRepository extends JpaRepository<ExamSession, Long>
     
     @Query("SELECT COUNT(e) FROM ExamSession e WHERE e.status = :status")
     Long countByStatus(ExamSession.SessionStatus status);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE ExamSession e SET e.actualCount = :actualCount WHERE e.id = :sessionId")
+    int updateActualCount(Long sessionId, Integer actualCount);
 }
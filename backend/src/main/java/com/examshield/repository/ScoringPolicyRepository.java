@@ -0,0 +1,17 @@
+package com.examshield.repository;
+
+import com.examshield.model.ScoringPolicy;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ScoringPolicyRepository extends JpaRepository<ScoringPolicy, Long> {
+
+    Optional<ScoringPolicy> findByName(String name);
+
+    boolean existsByName(String name);
+
+    List<ScoringPolicy> findAllByOrderByNameAsc();
+}
@@ -4,6 +4,7 @@ import com.examshield.model.StudentScore;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,6 +13,8 @@ public interface StudentScoreRepository extends JpaRepository<StudentScore, Long
     
     List<StudentScore> findBySessionId(Long sessionId);
     
+    List<StudentScore> findBySessionIdIn(Collection<Long> sessionIds);
+    
     Optional<StudentScore> findBySessionIdAndTrackingId(Long sessionId, String trackingId);
     
     List<StudentScore> findBySessionIdOrderByTotalScoreDesc(Long sessionId);
@@ -0,0 +1,119 @@
+package com.examshield.service;
+
+import com.examshield.dto.BinaryDetectionFrame;
+import com.examshield.dto.FrameIngestResultDTO;
+import com.examshield.model.DetectionEvent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary detection ingest protocol. All values are big-endian; a message is a sequence
+ * of records:
+ * <pre>
+ * 0x01 PERSON  ref:u16 length:u8 utf8[length]      binds ref to a person id for this connection
+ * 0x02 FRAMES  count:u16 frame[count]
+ *   frame      sessionId:i64 frameNumber:i32 headCount:i16 (-1 = none) detections:u16 detection[detections]
+ *   detection  class:u8 (EventType ordinal) person:u16 confidence:u8 (n/255)
+ *              x:i16 y:i16 width:i16 height:i16 (width -1 = no box)
+ * </pre>
+ * Replies are an ACK or an ERROR record; an ACK is followed by SLOW_DOWN when
+ * detections were shed by admission control. Detections still awaiting multi-frame
+ * confirmation are not counted in the ACK:
+ * <pre>
+ * 0x82 ACK       frames:u16 accepted:u16 cooledDown:u16 rejected:u16
+ * 0x83 SLOW_DOWN shed:u16 retryAfterMs:u16
+ * 0xFF ERROR     length:u16 utf8[length]
+ * </pre>
+ * One codec instance holds the person table of one connection and is not thread-safe.
+ */
+public class BinaryDetectionCodec {
+
+    public static final byte PERSON = 0x01;
+    public static final byte FRAMES = 0x02;
+    public static final byte ACK = (byte) 0x82;
+    public static final byte SLOW_DOWN = (byte) 0x83;
+    public static final byte ERROR = (byte) 0xFF;
+
+    private static final DetectionEvent.EventType[] EVENT_TYPES = DetectionEvent.EventType.values();
+
+    private String[] persons = new String[64];
+
+    public List<BinaryDetectionFrame> decode(ByteBuffer buffer) {
+        List<BinaryDetectionFrame> frames = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            byte type = buffer.get();
+            switch (type) {
+                case PERSON -> readPerson(buffer);
+                case FRAMES -> readFrames(buffer, frames);
+                default -> throw new IllegalArgumentException("Unknown record type: " + (type & 0xFF));
+            }
+        }
+        return frames;
+    }
+
+    public static ByteBuffer encodeAck(FrameIngestResultDTO result) {
+        boolean shed = result.getShed() != null && result.getShed() > 0;
+        ByteBuffer buffer = ByteBuffer.allocate(shed ? 14 : 9);
+        buffer.put(ACK);
+        buffer.putShort((short) Math.min(result.getFrames(), 0xFFFF));
+        buffer.putShort((short) Math.min(result.getAccepted(), 0xFFFF));
+        buffer.putShort((short) Math.min(result.getCooledDown(), 0xFFFF));
+        buffer.putShort((short) Math.min(result.getRejected(), 0xFFFF));
+        if (shed) {
+            buffer.put(SLOW_DOWN);
+            buffer.putShort((short) Math.min(result.getShed(), 0xFFFF));
+            buffer.putShort((short) Math.min(result.getRetryAfterMs(), 0xFFFF));
+        }
+        return buffer.flip();
+    }
+
+    public static ByteBuffer encodeError(String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 0xFFFF);
+        ByteBuffer buffer = ByteBuffer.allocate(3 + length);
+        buffer.put(ERROR);
+        buffer.putShort((short) length);
+        buffer.put(bytes, 0, length);
+        return buffer.flip();
+    }
+
+    private void readPerson(ByteBuffer buffer) {
+        int ref = Short.toUnsignedInt(buffer.getShort());
+        int length = Byte.toUnsignedInt(buffer.get());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        if (ref >= persons.length) {
+            persons = Arrays.copyOf(persons, Math.max(ref + 1, persons.length * 2));
+        }
+        persons[ref] = new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void readFrames(ByteBuffer buffer, List<BinaryDetectionFrame> frames) {
+        int count = Short.toUnsignedInt(buffer.getShort());
+        for (int f = 0; f < count; f++) {
+            long sessionId = buffer.getLong();
+            int frameNumber = buffer.getInt();
+            int headCount = buffer.getShort();
+            int size = Short.toUnsignedInt(buffer.getShort());
+
+            BinaryDetectionFrame frame = new BinaryDetectionFrame(sessionId, frameNumber,
+                    headCount < 0 ? BinaryDetectionFrame.NO_HEAD_COUNT : headCount, size);
+            for (int i = 0; i < size; i++) {
+                int classId = Byte.toUnsignedInt(buffer.get());
+                int personRef = Short.toUnsignedInt(buffer.getShort());
+                int confidence = Byte.toUnsignedInt(buffer.get());
+                frame.set(i,
+                        classId < EVENT_TYPES.length ? EVENT_TYPES[classId] : null,
+                        personRef < persons.length ? persons[personRef] : null,
+                        confidence / 255.0,
+                        buffer.getShort(), buffer.getShort(), buffer.getShort(), buffer.getShort());
+            }
+            frames.add(frame);
+        }
+    }
+}
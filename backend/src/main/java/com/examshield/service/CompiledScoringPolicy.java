@@ -0,0 +1,288 @@
+package com.examshield.service;
+
+import com.examshield.dto.ScoringPolicyDTO;
+import com.examshield.model.AlertHistory;
+import com.examshield.model.DetectionEvent;
+import com.examshield.model.StudentScore;
+
+import java.util.*;
+
+/**
+ * A scoring policy compiled for the ingest path: points are an array indexed by
+ * {@link DetectionEvent.EventType} ordinal, class labels resolve through a case-insensitive
+ * open-addressing table keyed by the label lower-cased with {@link Locale#ROOT}, and
+ * thresholds are plain fields.
+ * Instances are immutable, so swapping a policy is a single reference write.
+ */
+public final class CompiledScoringPolicy {
+
+    private static final DetectionEvent.EventType[] EVENT_TYPES = DetectionEvent.EventType.values();
+
+    public static final CompiledScoringPolicy BUILT_IN = compile(null, "built-in", 0, builtInDefinition());
+
+    private final Long id;
+    private final String name;
+    private final int version;
+
+    private final int[] points;
+    private final int defaultPoints;
+    private final int[] weightLadder;
+    private final double scoreMultiplier;
+
+    private final String[] labelKeys;
+    private final DetectionEvent.EventType[] labelValues;
+    private final int labelMask;
+    private final DetectionEvent.EventType defaultEventType;
+
+    private final double watch;
+    private final double suspicious;
+    private final double critical;
+
+    private final double alertYellow;
+    private final double alertOrange;
+    private final double alertRed;
+    private final double alertCritical;
+
+    private CompiledScoringPolicy(Long id, String name, int version, int[] points, int defaultPoints, double scoreMultiplier,
+                                  Map<String, DetectionEvent.EventType> labels, DetectionEvent.EventType defaultEventType,
+                                  ScoringPolicyDTO.StudentThresholds studentThresholds,
+                                  ScoringPolicyDTO.AlertThresholds alertThresholds) {
+        this.id = id;
+        this.name = name;
+        this.version = version;
+        this.points = points;
+        this.defaultPoints = defaultPoints;
+        this.weightLadder = Arrays.stream(points).distinct().sorted().toArray();
+        this.scoreMultiplier = scoreMultiplier;
+        this.defaultEventType = defaultEventType;
+
+        int capacity = Integer.highestOneBit(Math.max(4, labels.size() * 2 - 1)) << 1;
+        this.labelKeys = new String[capacity];
+        this.labelValues = new DetectionEvent.EventType[capacity];
+        this.labelMask = capacity - 1;
+        labels.forEach((label, eventType) -> {
+            int slot = hash(label) & labelMask;
+            while (labelKeys[slot] != null) {
+                slot = (slot + 1) & labelMask;
+            }
+            labelKeys[slot] = label;
+            labelValues[slot] = eventType;
+        });
+
+        this.watch = studentThresholds.getWatch();
+        this.suspicious = studentThresholds.getSuspicious();
+        this.critical = studentThresholds.getCritical();
+        this.alertYellow = alertThresholds.getYellow();
+        this.alertOrange = alertThresholds.getOrange();
+        this.alertRed = alertThresholds.getRed();
+        this.alertCritical = alertThresholds.getCritical();
+    }
+
+    /**
+     * Compiles a definition over the built-in policy. Throws {@link IllegalArgumentException}
+     * if the result is inconsistent.
+     */
+    public static CompiledScoringPolicy compile(Long id, String name, int version, ScoringPolicyDTO.Definition definition) {
+        ScoringPolicyDTO.Definition base = BUILT_IN != null ? BUILT_IN.toDefinition() : builtInDefinition();
+        ScoringPolicyDTO.Definition overrides = definition != null ? definition : new ScoringPolicyDTO.Definition();
+
+        int defaultPoints = overrides.getDefaultPoints() != null ? overrides.getDefaultPoints() : base.getDefaultPoints();
+        Map<DetectionEvent.EventType, Integer> pointsByType = new EnumMap<>(DetectionEvent.EventType.class);
+        pointsByType.putAll(base.getPoints());
+        if (overrides.getPoints() != null) {
+            pointsByType.putAll(overrides.getPoints());
+        }
+        int[] points = new int[EVENT_TYPES.length];
+        for (DetectionEvent.EventType eventType : EVENT_TYPES) {
+            Integer value = pointsByType.get(eventType);
+            points[eventType.ordinal()] = value != null ? value : defaultPoints;
+            if (points[eventType.ordinal()] < 0) {
+                throw new IllegalArgumentException("Points must not be negative: " + eventType);
+            }
+        }
+
+        Map<String, DetectionEvent.EventType> labels = new HashMap<>();
+        base.getLabels().forEach((label, eventType) -> labels.put(label.toLowerCase(Locale.ROOT), eventType));
+        if (overrides.getLabels() != null) {
+            overrides.getLabels().forEach((label, eventType) -> {
+                if (label == null || eventType == null) {
+                    throw new IllegalArgumentException("Class labels need a name and an event type");
+                }
+                labels.put(label.toLowerCase(Locale.ROOT), eventType);
+            });
+        }
+
+        double scoreMultiplier = overrides.getScoreMultiplier() != null ? overrides.getScoreMultiplier() : base.getScoreMultiplier();
+        if (scoreMultiplier < 0) {
+            throw new IllegalArgumentException("Score multiplier must not be negative");
+        }
+
+        ScoringPolicyDTO.StudentThresholds student = merge(base.getStudentThresholds(), overrides.getStudentThresholds());
+        ScoringPolicyDTO.AlertThresholds alert = merge(base.getAlertThresholds(), overrides.getAlertThresholds());
+        if (!(student.getWatch() <= student.getSuspicious() && student.getSuspicious() <= student.getCritical())) {
+            throw new IllegalArgumentException("Student thresholds must be ascending: watch <= suspicious <= critical");
+        }
+        if (!(alert.getYellow() <= alert.getOrange() && alert.getOrange() <= alert.getRed() && alert.getRed() <= alert.getCritical())) {
+            throw new IllegalArgumentException("Alert thresholds must be ascending: yellow <= orange <= red <= critical");
+        }
+
+        return new CompiledScoringPolicy(id, name, version, points, defaultPoints, scoreMultiplier, labels,
+                overrides.getDefaultEventType() != null ? overrides.getDefaultEventType() : base.getDefaultEventType(),
+                student, alert);
+    }
+
+    public int points(DetectionEvent.EventType eventType) {
+        return points[eventType.ordinal()];
+    }
+
+    /**
+     * Resolves a detector class label, ignoring case. The label is normalised the same way
+     * the table's keys were, which allocates nothing for labels already in lower case.
+     */
+    public DetectionEvent.EventType eventType(String label) {
+        String normalized = label.toLowerCase(Locale.ROOT);
+        int slot = hash(normalized) & labelMask;
+        String key;
+        while ((key = labelKeys[slot]) != null) {
+            if (key.equals(normalized)) {
+                return labelValues[slot];
+            }
+            slot = (slot + 1) & labelMask;
+        }
+        return defaultEventType;
+    }
+
+    public StudentScore.AlertLevel studentAlertLevel(double score) {
+        if (score >= critical) return StudentScore.AlertLevel.CRITICAL;
+        if (score >= suspicious) return StudentScore.AlertLevel.SUSPICIOUS;
+        if (score >= watch) return StudentScore.AlertLevel.WATCH;
+        return StudentScore.AlertLevel.NORMAL;
+    }
+
+    public AlertHistory.AlertLevel alertLevel(double points) {
+        if (points >= alertCritical) return AlertHistory.AlertLevel.CRITICAL;
+        if (points >= alertRed) return AlertHistory.AlertLevel.RED;
+        if (points >= alertOrange) return AlertHistory.AlertLevel.ORANGE;
+        if (points >= alertYellow) return AlertHistory.AlertLevel.YELLOW;
+        return AlertHistory.AlertLevel.GREEN;
+    }
+
+    public String sessionAlertLevel(double averageScore) {
+        return alertLevel(averageScore).name();
+    }
+
+    public boolean isSuspicious(double score) {
+        return score >= suspicious;
+    }
+
+    /**
+     * Distinct point values in ascending order, used as load-shedding cutoffs.
+     */
+    public int[] getWeightLadder() {
+        return weightLadder;
+    }
+
+    public double getScoreMultiplier() {
+        return scoreMultiplier;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public ScoringPolicyDTO.Definition toDefinition() {
+        Map<DetectionEvent.EventType, Integer> pointsByType = new EnumMap<>(DetectionEvent.EventType.class);
+        for (DetectionEvent.EventType eventType : EVENT_TYPES) {
+            pointsByType.put(eventType, points[eventType.ordinal()]);
+        }
+        Map<String, DetectionEvent.EventType> labels = new TreeMap<>();
+        for (int i = 0; i < labelKeys.length; i++) {
+            if (labelKeys[i] != null) {
+                labels.put(labelKeys[i], labelValues[i]);
+            }
+        }
+
+        return ScoringPolicyDTO.Definition.builder()
+                .points(pointsByType)
+                .defaultPoints(defaultPoints)
+                .labels(labels)
+                .defaultEventType(defaultEventType)
+                .scoreMultiplier(scoreMultiplier)
+                .studentThresholds(new ScoringPolicyDTO.StudentThresholds(watch, suspicious, critical))
+                .alertThresholds(new ScoringPolicyDTO.AlertThresholds(alertYellow, alertOrange, alertRed, alertCritical))
+                .build();
+    }
+
+    private static int hash(String normalizedLabel) {
+        int h = normalizedLabel.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static ScoringPolicyDTO.StudentThresholds merge(ScoringPolicyDTO.StudentThresholds base,
+                                                            ScoringPolicyDTO.StudentThresholds overrides) {
+        if (overrides == null) {
+            return base;
+        }
+        return new ScoringPolicyDTO.StudentThresholds(
+                overrides.getWatch() != null ? overrides.getWatch() : base.getWatch(),
+                overrides.getSuspicious() != null ? overrides.getSuspicious() : base.getSuspicious(),
+                overrides.getCritical() != null ? overrides.getCritical() : base.getCritical());
+    }
+
+    private static ScoringPolicyDTO.AlertThresholds merge(ScoringPolicyDTO.AlertThresholds base,
+                                                          ScoringPolicyDTO.AlertThresholds overrides) {
+        if (overrides == null) {
+            return base;
+        }
+        return new ScoringPolicyDTO.AlertThresholds(
+                overrides.getYellow() != null ? overrides.getYellow() : base.getYellow(),
+                overrides.getOrange() != null ? overrides.getOrange() : base.getOrange(),
+                overrides.getRed() != null ? overrides.getRed() : base.getRed(),
+                overrides.getCritical() != null ? overrides.getCritical() : base.getCritical());
+    }
+
+    private static ScoringPolicyDTO.Definition builtInDefinition() {
+        Map<DetectionEvent.EventType, Integer> points = new EnumMap<>(DetectionEvent.EventType.class);
+        points.put(DetectionEvent.EventType.PHONE_DETECTED, 25);
+        points.put(DetectionEvent.EventType.EARPHONE_DETECTED, 30);
+        points.put(DetectionEvent.EventType.SMARTWATCH_DETECTED, 20);
+        points.put(DetectionEvent.EventType.CHIT_DETECTED, 20);
+        points.put(DetectionEvent.EventType.TEXTBOOK_DETECTED, 35);
+        points.put(DetectionEvent.EventType.NOTEBOOK_DETECTED, 30);
+        points.put(DetectionEvent.EventType.ELECTRONIC_DEVICE_DETECTED, 25);
+        points.put(DetectionEvent.EventType.HEAD_TURNED, 10);
+        points.put(DetectionEvent.EventType.LOOKING_AT_NEIGHBOR, 8);
+        points.put(DetectionEvent.EventType.LEANING_TOWARD_OTHER, 10);
+        points.put(DetectionEvent.EventType.PASSING_GESTURE, 15);
+        points.put(DetectionEvent.EventType.HEAD_COUNT_MISMATCH, 40);
+        points.put(DetectionEvent.EventType.EXTRA_PERSON, 50);
+        points.put(DetectionEvent.EventType.INTERACTION_DETECTED, 15);
+
+        Map<String, DetectionEvent.EventType> labels = new HashMap<>();
+        for (String label : List.of("phone", "mobile")) labels.put(label, DetectionEvent.EventType.PHONE_DETECTED);
+        for (String label : List.of("earphone", "earbuds", "headphones")) labels.put(label, DetectionEvent.EventType.EARPHONE_DETECTED);
+        for (String label : List.of("smartwatch", "watch")) labels.put(label, DetectionEvent.EventType.SMARTWATCH_DETECTED);
+        for (String label : List.of("chit", "paper_slip", "chit_slip")) labels.put(label, DetectionEvent.EventType.CHIT_DETECTED);
+        for (String label : List.of("textbook", "book")) labels.put(label, DetectionEvent.EventType.TEXTBOOK_DETECTED);
+        for (String label : List.of("notebook", "notes")) labels.put(label, DetectionEvent.EventType.NOTEBOOK_DETECTED);
+        for (String label : List.of("electronic_device", "tablet")) labels.put(label, DetectionEvent.EventType.ELECTRONIC_DEVICE_DETECTED);
+
+        return ScoringPolicyDTO.Definition.builder()
+                .points(points)
+                .defaultPoints(10)
+                .labels(labels)
+                .defaultEventType(DetectionEvent.EventType.INTERACTION_DETECTED)
+                .scoreMultiplier(0.85)
+                .studentThresholds(new ScoringPolicyDTO.StudentThresholds(16.0, 61.0, 86.0))
+                .alertThresholds(new ScoringPolicyDTO.AlertThresholds(16.0, 36.0, 61.0, 86.0))
+                .build();
+    }
+}
@@ -0,0 +1,173 @@
+package com.examshield.service;
+
+import com.examshield.model.DetectionEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control in front of the detection pipeline. Counts the detections that
+ * have been admitted but not yet applied, per session and in total, and turns the
+ * fill level of those queues (and of the write-behind queue) into a cutoff weight:
+ * detections whose base points are below the cutoff are shed before they are queued.
+ * <p>
+ * Up to {@code shed-start} fill nothing is shed; from there the cutoff climbs through
+ * the distinct point values of the session's scoring policy, so with the built-in policy
+ * {@code LOOKING_AT_NEIGHBOR} goes first, then {@code HEAD_TURNED}, and {@code EXTRA_PERSON}
+ * last. The detections of the request being admitted count towards the fill level, so a
+ * request that would overfill a queue is rejected as a whole and callers are told to
+ * retry later; the capacities are therefore hard bounds.
+ * <p>
+ * A session's counter only exists while it has detections in flight: it is dropped in the
+ * same map operation that brings it to zero, so an ended session leaves nothing behind and
+ * no late completion can drive a fresh counter negative.
+ */
+@Service
+@Slf4j
+public class DetectionAdmissionService {
+
+    public static final int ADMIT_ALL = 0;
+    public static final int REJECT_ALL = Integer.MAX_VALUE;
+
+    private static final DetectionEvent.EventType[] EVENT_TYPES = DetectionEvent.EventType.values();
+
+    private final DetectionPersistenceService detectionPersistenceService;
+    private final int sessionCapacity;
+    private final int globalCapacity;
+    private final double shedStart;
+    private final long retryAfterMs;
+
+    private final Map<Long, Integer> sessionQueued = new ConcurrentHashMap<>();
+    private final AtomicInteger globalQueued = new AtomicInteger();
+    private final LongAdder[] shedByType = new LongAdder[EVENT_TYPES.length];
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder rejectedRequests = new LongAdder();
+
+    public DetectionAdmissionService(
+            DetectionPersistenceService detectionPersistenceService,
+            @Value("${app.ingest.admission.session-capacity:2000}") int sessionCapacity,
+            @Value("${app.ingest.admission.global-capacity:20000}") int globalCapacity,
+            @Value("${app.ingest.admission.shed-start:0.5}") double shedStart,
+            @Value("${app.ingest.admission.retry-after-ms:1000}") long retryAfterMs) {
+        this.detectionPersistenceService = detectionPersistenceService;
+        this.sessionCapacity = sessionCapacity;
+        this.globalCapacity = globalCapacity;
+        this.shedStart = shedStart;
+        this.retryAfterMs = retryAfterMs;
+        for (int i = 0; i < shedByType.length; i++) {
+            shedByType[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns the minimum base points the {@code incoming} detections for this session need
+     * to be admitted right now: {@link #ADMIT_ALL}, a weight from the policy's ladder, or
+     * {@link #REJECT_ALL} when admitting them would overfill a queue.
+     */
+    public int cutoffWeight(Long sessionId, CompiledScoringPolicy policy, int incoming) {
+        double pressure = Math.max(
+                (double) (sessionQueued.getOrDefault(sessionId, 0) + incoming) / sessionCapacity,
+                (double) (globalQueued.get() + incoming) / globalCapacity);
+        if (detectionPersistenceService.isWriteBehindEnabled()) {
+            pressure = Math.max(pressure,
+                    (double) detectionPersistenceService.getQueueDepth() / detectionPersistenceService.getQueueCapacity());
+        }
+
+        if (pressure < shedStart) {
+            return ADMIT_ALL;
+        }
+        if (pressure > 1.0) {
+            return REJECT_ALL;
+        }
+        int[] weightLadder = policy.getWeightLadder();
+        int level = (int) ((pressure - shedStart) / (1.0 - shedStart) * weightLadder.length);
+        return weightLadder[Math.min(level + 1, weightLadder.length - 1)];
+    }
+
+    /**
+     * Returns true, and counts the drop, when a detection of this type falls below the cutoff.
+     */
+    public boolean shouldShed(CompiledScoringPolicy policy, int cutoffWeight, DetectionEvent.EventType eventType) {
+        if (cutoffWeight != REJECT_ALL && policy.points(eventType) >= cutoffWeight) {
+            return false;
+        }
+        shedByType[eventType.ordinal()].increment();
+        return true;
+    }
+
+    public void enqueued(Long sessionId, int count) {
+        if (count == 0) {
+            return;
+        }
+        sessionQueued.merge(sessionId, count, Integer::sum);
+        globalQueued.addAndGet(count);
+        enqueued.add(count);
+    }
+
+    public void completed(Long sessionId, int count) {
+        if (count == 0) {
+            return;
+        }
+        sessionQueued.computeIfPresent(sessionId, (id, queued) -> queued > count ? queued - count : null);
+        globalQueued.addAndGet(-count);
+    }
+
+    public IngestOverloadedException overloaded(Long sessionId) {
+        rejectedRequests.increment();
+        log.warn("Detection ingest overloaded for session {}, rejecting", sessionId);
+        return new IngestOverloadedException("Detection ingest overloaded, retry after " + retryAfterMs + " ms", retryAfterMs);
+    }
+
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
+    public int getGlobalQueued() {
+        return globalQueued.get();
+    }
+
+    public Map<Long, Integer> getSessionQueued() {
+        Map<Long, Integer> queued = new HashMap<>();
+        queued.putAll(sessionQueued);
+        return queued;
+    }
+
+    public long getShedCount(DetectionEvent.EventType eventType) {
+        return shedByType[eventType.ordinal()].sum();
+    }
+
+    public long getRejectedRequestCount() {
+        return rejectedRequests.sum();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Long> shed = new LinkedHashMap<>();
+        long totalShed = 0;
+        for (DetectionEvent.EventType eventType : EVENT_TYPES) {
+            long count = shedByType[eventType.ordinal()].sum();
+            totalShed += count;
+            if (count > 0) {
+                shed.put(eventType.name(), count);
+            }
+        }
+
+        Map<String, Integer> sessions = new LinkedHashMap<>();
+        sessionQueued.forEach((sessionId, queued) -> sessions.put(String.valueOf(sessionId), queued));
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("globalQueued", globalQueued.get());
+        metrics.put("globalCapacity", globalCapacity);
+        metrics.put("sessionCapacity", sessionCapacity);
+        metrics.put("sessionQueued", sessions);
+        metrics.put("enqueued", enqueued.sum());
+        metrics.put("shed", totalShed);
+        metrics.put("shedByType", shed);
+        metrics.put("rejectedRequests", rejectedRequests.sum());
+        return metrics;
+    }
+}
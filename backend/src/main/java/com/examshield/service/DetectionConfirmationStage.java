@@ -0,0 +1,195 @@
+package com.examshield.service;
+
+import com.examshield.model.DetectionEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Temporal confirmation of detections: an event type is only reported for a person once
+ * it was seen in at least {@code app.detection.confirmation.required} of the last
+ * {@code app.detection.confirmation.frames} frames, with the confidence averaged over
+ * those frames. Single-frame false positives therefore never reach scoring or the
+ * cooldown.
+ * <p>
+ * Each person keeps, per {@link DetectionEvent.EventType} ordinal, a bitset of the frames
+ * it was seen in (bit 0 = most recent frame) and a ring of their confidences, so an
+ * observation allocates nothing once the person is known. Frames without a number are
+ * numbered from a per-session counter and confirmed in windows of their own, so the
+ * synthetic numbers never meet the client's. Session state is only touched from the
+ * session's mailbox.
+ */
+@Component
+public class DetectionConfirmationStage {
+
+    private static final int EVENT_TYPE_COUNT = DetectionEvent.EventType.values().length;
+    private static final int PRUNE_INTERVAL = 1024;
+
+    private final Map<Long, SessionWindows> sessions = new ConcurrentHashMap<>();
+    private final int frames;
+    private final int required;
+    private final int idleFrames;
+    private final long frameMask;
+
+    private final LongAdder observed = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+    private final SessionRegistry sessionRegistry;
+
+    public DetectionConfirmationStage(
+            @Value("${app.detection.confirmation.frames:5}") int frames,
+            @Value("${app.detection.confirmation.required:3}") int required,
+            @Value("${app.detection.confirmation.idle-frames:300}") int idleFrames,
+            SessionRegistry sessionRegistry) {
+        this.frames = Math.max(1, Math.min(frames, 64));
+        this.required = Math.max(1, Math.min(required, this.frames));
+        this.idleFrames = Math.max(idleFrames, this.frames);
+        this.frameMask = this.frames == 64 ? -1L : (1L << this.frames) - 1;
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    /**
+     * Returns the next frame number for frames that carry none.
+     */
+    public int nextFrameNumber(Long sessionId) {
+        return getSession(sessionId).unnumbered().syntheticFrame++;
+    }
+
+    /**
+     * Records that the person showed the event type in the given frame. Returns the average
+     * confidence over the agreeing frames once the event is confirmed, {@code NaN} while it
+     * is not.
+     * <p>
+     * Frame numbers that jump back by a whole window are taken as a restarted stream rather
+     * than as late frames: the window starts over from that frame, and a jump back of
+     * {@code idle-frames} or more starts the whole session over. Numbers handed out by
+     * {@link #nextFrameNumber} must be observed with {@code synthetic} set.
+     */
+    public double observe(Long sessionId, String personId, DetectionEvent.EventType eventType, int frameNumber,
+                          boolean synthetic, double confidence) {
+        observed.increment();
+        SessionWindows session = getSession(sessionId);
+        if (synthetic) {
+            session = session.unnumbered();
+        }
+        if (session.latestFrame != Integer.MIN_VALUE && (long) session.latestFrame - frameNumber >= idleFrames) {
+            session.persons.clear();
+            session.latestFrame = frameNumber;
+        } else {
+            session.latestFrame = Math.max(session.latestFrame, frameNumber);
+        }
+        if (++session.observations % PRUNE_INTERVAL == 0) {
+            session.prune(idleFrames);
+        }
+
+        PersonWindows person = session.persons.get(personId);
+        if (person == null) {
+            person = new PersonWindows(frames);
+            session.persons.put(personId, person);
+        }
+        person.lastSeen = Math.max(person.lastSeen, frameNumber);
+
+        int type = eventType.ordinal();
+        long bits = person.bits[type];
+        int last = person.lastFrame[type];
+        int offset;
+        if (bits == 0 || Math.abs((long) frameNumber - last) >= frames) {
+            bits = 0;
+            person.lastFrame[type] = frameNumber;
+            offset = 0;
+        } else if (frameNumber > last) {
+            bits = (bits << (frameNumber - last)) & frameMask;
+            person.lastFrame[type] = frameNumber;
+            offset = 0;
+        } else {
+            offset = last - frameNumber;
+        }
+
+        int slot = type * frames + Math.floorMod(frameNumber, frames);
+        long bit = 1L << offset;
+        person.confidences[slot] = (bits & bit) != 0
+                ? Math.max(person.confidences[slot], confidence)
+                : confidence;
+        bits |= bit;
+        person.bits[type] = bits;
+
+        int seen = Long.bitCount(bits);
+        if (seen < required) {
+            return Double.NaN;
+        }
+
+        double sum = 0;
+        int newest = person.lastFrame[type];
+        for (int i = 0; i < frames; i++) {
+            if ((bits & (1L << i)) != 0) {
+                sum += person.confidences[type * frames + Math.floorMod(newest - i, frames)];
+            }
+        }
+        confirmed.increment();
+        return sum / seen;
+    }
+
+    public void evictSession(Long sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    public Map<String, Object> getMetrics() {
+        int persons = 0;
+        for (SessionWindows session : sessions.values()) {
+            persons += session.persons.size();
+            if (session.unnumbered != null) {
+                persons += session.unnumbered.persons.size();
+            }
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("frames", frames);
+        metrics.put("required", required);
+        metrics.put("sessions", sessions.size());
+        metrics.put("trackedPersons", persons);
+        metrics.put("observed", observed.sum());
+        metrics.put("confirmed", confirmed.sum());
+        return metrics;
+    }
+
+    private SessionWindows getSession(Long sessionId) {
+        SessionWindows session = sessions.get(sessionId);
+        if (session != null) {
+            return session;
+        }
+        sessionRegistry.checkAccepting(sessionId);
+        return sessions.computeIfAbsent(sessionId, id -> new SessionWindows());
+    }
+
+    private static class SessionWindows {
+        private final Map<String, PersonWindows> persons = new HashMap<>();
+        private int latestFrame = Integer.MIN_VALUE;
+        private int syntheticFrame;
+        private int observations;
+        private SessionWindows unnumbered;
+
+        private SessionWindows unnumbered() {
+            if (unnumbered == null) {
+                unnumbered = new SessionWindows();
+            }
+            return unnumbered;
+        }
+
+        private void prune(int idleFrames) {
+            persons.values().removeIf(person -> latestFrame - person.lastSeen > idleFrames);
+        }
+    }
+
+    private static class PersonWindows {
+        private final long[] bits = new long[EVENT_TYPE_COUNT];
+        private final int[] lastFrame = new int[EVENT_TYPE_COUNT];
+        private final double[] confidences;
+        private int lastSeen = Integer.MIN_VALUE;
+
+        private PersonWindows(int frames) {
+            this.confidences = new double[EVENT_TYPE_COUNT * frames];
+        }
+    }
+}
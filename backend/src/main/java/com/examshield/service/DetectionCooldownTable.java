@@ -0,0 +1,202 @@
+package com.examshield.service;
+
+import com.examshield.model.DetectionEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks when each person last produced each event type, so repeated detections
+ * within the cooldown window are suppressed. Timestamps are {@link System#nanoTime()}
+ * values stored in a per-person array indexed by {@link DetectionEvent.EventType} ordinal.
+ * <p>
+ * A person whose timestamps are all older than the cooldown no longer affects any
+ * decision, so such entries are swept periodically; sessions are dropped when they
+ * end or go idle. The number of tracked persons is capped at
+ * {@code app.detection.cooldown.max-entries}; once the cap is reached new persons are
+ * not tracked until space is freed.
+ */
+@Component
+@Slf4j
+public class DetectionCooldownTable {
+
+    private static final int EVENT_TYPE_COUNT = DetectionEvent.EventType.values().length;
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final Map<Long, SessionCooldowns> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger entryCount = new AtomicInteger();
+
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    private final long cooldownNanos;
+    private final long idleSessionNanos;
+    private final int maxEntries;
+    private final SessionRegistry sessionRegistry;
+
+    public DetectionCooldownTable(
+            @Value("${app.detection.cooldown-seconds:30}") int cooldownSeconds,
+            @Value("${app.detection.cooldown.idle-session-minutes:30}") int idleSessionMinutes,
+            @Value("${app.detection.cooldown.max-entries:100000}") int maxEntries,
+            SessionRegistry sessionRegistry) {
+        this.cooldownNanos = TimeUnit.SECONDS.toNanos(cooldownSeconds);
+        this.idleSessionNanos = TimeUnit.MINUTES.toNanos(idleSessionMinutes);
+        this.maxEntries = maxEntries;
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    /**
+     * Returns {@code true} and starts a new cooldown if the person has not produced
+     * this event type within the cooldown window, {@code false} otherwise, and always for
+     * a session that no longer takes detections.
+     */
+    public boolean tryAcquire(Long sessionId, String personId, DetectionEvent.EventType eventType) {
+        long now = System.nanoTime();
+        while (true) {
+            SessionCooldowns session = sessions.get(sessionId);
+            if (session == null) {
+                if (!sessionRegistry.isAccepting(sessionId)) {
+                    return false;
+                }
+                session = sessions.computeIfAbsent(sessionId, id -> new SessionCooldowns());
+            }
+            synchronized (session) {
+                if (!session.evicted) {
+                    return tryAcquire(session, personId, eventType, now);
+                }
+            }
+        }
+    }
+
+    private boolean tryAcquire(SessionCooldowns session, String personId, DetectionEvent.EventType eventType, long now) {
+        session.lastAccess = now;
+        long[] lastTimes = session.persons.get(personId);
+        if (lastTimes == null) {
+            lastTimes = newEntry();
+            if (lastTimes == null) {
+                allowed.increment();
+                return true;
+            }
+            session.persons.put(personId, lastTimes);
+        }
+
+        long last = lastTimes[eventType.ordinal()];
+        if (last != NEVER && now - last < cooldownNanos) {
+            suppressed.increment();
+            return false;
+        }
+
+        lastTimes[eventType.ordinal()] = now;
+        allowed.increment();
+        return true;
+    }
+
+    public void evictSession(Long sessionId) {
+        SessionCooldowns session = sessions.remove(sessionId);
+        if (session != null) {
+            synchronized (session) {
+                session.evicted = true;
+                entryCount.addAndGet(-session.persons.size());
+                evictions.add(session.persons.size());
+                session.persons.clear();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.detection.cooldown.sweep-ms:60000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        int removed = 0;
+
+        for (Map.Entry<Long, SessionCooldowns> entry : sessions.entrySet()) {
+            SessionCooldowns session = entry.getValue();
+            synchronized (session) {
+                if (now - session.lastAccess > idleSessionNanos) {
+                    session.evicted = true;
+                    removed += session.persons.size();
+                    session.persons.clear();
+                    sessions.remove(entry.getKey(), session);
+                    continue;
+                }
+
+                Iterator<long[]> iterator = session.persons.values().iterator();
+                while (iterator.hasNext()) {
+                    if (isExpired(iterator.next(), now)) {
+                        iterator.remove();
+                        removed++;
+                    }
+                }
+            }
+        }
+
+        if (removed > 0) {
+            entryCount.addAndGet(-removed);
+            evictions.add(removed);
+            log.debug("Evicted {} cooldown entries", removed);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        long hits = suppressed.sum();
+        long misses = allowed.sum();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("sessions", sessions.size());
+        metrics.put("entries", entryCount.get());
+        metrics.put("maxEntries", maxEntries);
+        metrics.put("suppressed", hits);
+        metrics.put("allowed", misses);
+        metrics.put("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+        metrics.put("evictions", evictions.sum());
+        metrics.put("overflows", overflows.sum());
+        return metrics;
+    }
+
+    public int size() {
+        return entryCount.get();
+    }
+
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+
+    private long[] newEntry() {
+        if (entryCount.incrementAndGet() > maxEntries) {
+            entryCount.decrementAndGet();
+            overflows.increment();
+            return null;
+        }
+
+        long[] lastTimes = new long[EVENT_TYPE_COUNT];
+        Arrays.fill(lastTimes, NEVER);
+        return lastTimes;
+    }
+
+    private boolean isExpired(long[] lastTimes, long now) {
+        for (long last : lastTimes) {
+            if (last != NEVER && now - last < cooldownNanos) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class SessionCooldowns {
+        private final Map<String, long[]> persons = new HashMap<>();
+        private long lastAccess = System.nanoTime();
+        private boolean evicted;
+    }
+}
@@ -0,0 +1,355 @@
+package com.examshield.service;
+
+import com.examshield.model.*;
+import com.examshield.repository.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Persists accepted detections and their alerts. In write-behind mode detections are
+ * queued in memory and written by a single writer thread in batches, so inserts reach
+ * the JDBC driver in groups of {@code hibernate.jdbc.batch_size} instead of one
+ * transaction per detection. Student scores are kept by {@link StudentScoreAggregator}.
+ * With write-behind disabled (or when the queue is full, or after shutdown has begun)
+ * detections are written synchronously, in one transaction per call.
+ * <p>
+ * Alerts are published through {@link SessionBroadcastService#publishAlert} once the
+ * transaction that stored them commits, so what dashboards are told about is on record.
+ * <p>
+ * The caller has already been told a queued detection was accepted, so a batch that fails
+ * is retried {@code max-retries} times and then written one detection per transaction;
+ * only detections that still fail on their own are dropped, and logged.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DetectionPersistenceService {
+
+    private final ExamSessionRepository examSessionRepository;
+    private final DetectionEventRepository detectionEventRepository;
+    private final AlertHistoryRepository alertHistoryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionBroadcastService sessionBroadcastService;
+
+    @Value("${app.detection.write-behind.enabled:true}")
+    private boolean writeBehindEnabled;
+
+    @Value("${app.detection.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.detection.write-behind.flush-size:200}")
+    private int flushSize;
+
+    @Value("${app.detection.write-behind.flush-interval-ms:250}")
+    private long flushIntervalMs;
+
+    @Value("${app.detection.write-behind.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${app.detection.write-behind.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    private BlockingQueue<PendingDetection> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+    // Held shared while enqueueing, exclusively to stop, so nothing is queued after the final drain
+    private final ReadWriteLock enqueueLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final AtomicLong persistedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong synchronousFallbackCount = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        if (!writeBehindEnabled) {
+            log.info("Detection write-behind disabled, detections are persisted synchronously");
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::runWriter, "detection-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Detection write-behind started (capacity={}, flushSize={}, flushIntervalMs={})",
+                queueCapacity, flushSize, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+
+        enqueueLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            enqueueLock.writeLock().unlock();
+        }
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        if (writerThread.isAlive()) {
+            // Still inside a write: cut its retries short and wait it out, the writer pool
+            // has a single connection and the drain below must not race the batch
+            log.warn("Detection writer did not stop in time, interrupting");
+            writerThread.interrupt();
+            writerThread.join();
+        }
+
+        List<PendingDetection> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.info("Flushing {} queued detections on shutdown", remaining.size());
+            write(remaining);
+        }
+    }
+
+    public void persistAll(List<PendingDetection> detections) {
+        if (detections.isEmpty()) {
+            return;
+        }
+
+        List<PendingDetection> overflow = queue != null ? enqueue(detections) : detections;
+        if (overflow == null) {
+            return;
+        }
+        if (queue != null) {
+            synchronousFallbackCount.addAndGet(overflow.size());
+            log.warn("Detection queue full or stopped, persisting {} detections synchronously", overflow.size());
+        }
+        try {
+            persistBatch(overflow);
+        } catch (RuntimeException e) {
+            completeTraces(overflow, false);
+            throw e;
+        }
+        completeTraces(overflow, true);
+    }
+
+    /**
+     * Queues what fits and returns the rest, or {@code null} when everything was queued.
+     */
+    private List<PendingDetection> enqueue(List<PendingDetection> detections) {
+        enqueueLock.readLock().lock();
+        try {
+            if (!running) {
+                return detections;
+            }
+            List<PendingDetection> overflow = null;
+            for (PendingDetection detection : detections) {
+                pendingCount.incrementAndGet();
+                if (!queue.offer(detection)) {
+                    pendingCount.decrementAndGet();
+                    if (overflow == null) {
+                        overflow = new ArrayList<>();
+                    }
+                    overflow.add(detection);
+                }
+            }
+            return overflow;
+        } finally {
+            enqueueLock.readLock().unlock();
+        }
+    }
+
+    public boolean isWriteBehindEnabled() {
+        return queue != null;
+    }
+
+    /**
+     * Waits until every detection queued so far has been written or dropped.
+     */
+    public boolean awaitFlush(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (pendingCount.get() > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public long getPersistedCount() {
+        return persistedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getSynchronousFallbackCount() {
+        return synchronousFallbackCount.get();
+    }
+
+    private void runWriter() {
+        List<PendingDetection> batch = new ArrayList<>(flushSize);
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+
+        while (running) {
+            try {
+                PendingDetection first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < flushSize) {
+                    queue.drainTo(batch, flushSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= flushSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingDetection next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+            } catch (InterruptedException e) {
+                // The partial batch is still written below
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                write(batch);
+            }
+        }
+    }
+
+    /**
+     * Writes queued detections and releases them from {@code pendingCount}, whatever the
+     * outcome.
+     */
+    private void write(List<PendingDetection> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            flush(batch);
+        } finally {
+            pendingCount.addAndGet(-batch.size());
+            batch.clear();
+        }
+    }
+
+    private void flush(List<PendingDetection> batch) {
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            if (attempt > 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(retryBackoffMs * attempt));
+            }
+            try {
+                persistBatch(batch);
+                completeTraces(batch, true);
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Failed to persist batch of {} detections (attempt {} of {}): {}",
+                        batch.size(), attempt + 1, maxRetries + 1, e.getMessage());
+            }
+        }
+
+        // One bad detection shouldn't cost the rest of the batch
+        for (PendingDetection detection : batch) {
+            List<PendingDetection> single = List.of(detection);
+            try {
+                persistBatch(single);
+                completeTraces(single, true);
+            } catch (RuntimeException e) {
+                failedCount.incrementAndGet();
+                completeTraces(single, false);
+                log.error("Dropping detection {} of person {} in session {}: {}", detection.getEventType(),
+                        detection.getPersonId(), detection.getSessionId(), e.getMessage());
+            }
+        }
+    }
+
+    private void persistBatch(List<PendingDetection> batch) {
+        List<AlertHistory> alerts = transactionTemplate.execute(status -> writeBatch(batch));
+        persistedCount.addAndGet(batch.size());
+        publishAlerts(alerts);
+    }
+
+    private void publishAlerts(List<AlertHistory> alerts) {
+        for (AlertHistory alert : alerts) {
+            Long sessionId = alert.getSession().getId();
+            try {
+                sessionBroadcastService.publishAlert(sessionId, alert.getMessage(), alert.getAlertLevel().name());
+            } catch (RuntimeException e) {
+                // Already stored; a dashboard that missed it still finds it in the alert history
+                log.warn("Failed to publish alert for session {}: {}", sessionId, e.getMessage());
+            }
+        }
+    }
+
+    private void completeTraces(List<PendingDetection> batch, boolean success) {
+        for (PendingDetection detection : batch) {
+            if (detection.getTrace() != null) {
+                detection.getTrace().detectionPersisted(success);
+            }
+        }
+    }
+
+    private List<AlertHistory> writeBatch(List<PendingDetection> batch) {
+        Map<Long, ExamSession> sessions = new HashMap<>();
+        List<DetectionEvent> events = new ArrayList<>(batch.size());
+        List<AlertHistory> alerts = new ArrayList<>();
+
+        for (PendingDetection detection : batch) {
+            ExamSession session = sessions.computeIfAbsent(detection.getSessionId(), examSessionRepository::getReferenceById);
+            events.add(detection.toEntity(session));
+
+            AlertHistory alert = createAlertIfNeeded(session, detection);
+            if (alert != null) {
+                alerts.add(alert);
+            }
+        }
+
+        detectionEventRepository.saveAll(events);
+        alertHistoryRepository.saveAll(alerts);
+        return alerts;
+    }
+
+    private AlertHistory createAlertIfNeeded(ExamSession session, PendingDetection detection) {
+        AlertHistory.AlertLevel alertLevel = detection.getAlertLevel();
+
+        if (alertLevel == null || alertLevel == AlertHistory.AlertLevel.GREEN) {
+            return null;
+        }
+
+        return AlertHistory.builder()
+                .session(session)
+                .alertLevel(alertLevel)
+                .message(String.format("%s detected for person %s (%d points)",
+                        detection.getEventType().name(), detection.getPersonId(), detection.getPoints()))
+                .personId(detection.getPersonId())
+                .eventType(detection.getEventType().name())
+                .isAcknowledged(false)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
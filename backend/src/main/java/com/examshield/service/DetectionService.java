@@ -5,13 +5,12 @@ import com.examshield.model.*;
 import com.examshield.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,277 +21,724 @@ public class DetectionService {
     private final ExamSessionRepository examSessionRepository;
     private final DetectionEventRepository detectionEventRepository;
     private final StudentScoreRepository studentScoreRepository;
-    private final AlertHistoryRepository alertHistoryRepository;
     private final ProcessingJobRepository processingJobRepository;
+    private final DetectionPersistenceService detectionPersistenceService;
+    private final StudentScoreAggregator studentScoreAggregator;
+    private final DetectionCooldownTable detectionCooldownTable;
+    private final SessionMailboxService sessionMailboxService;
+    private final DetectionAdmissionService detectionAdmissionService;
+    private final SessionRegistry sessionRegistry;
+    private final ScoreDecay scoreDecay;
+    private final HeadCountTracker headCountTracker;
+    private final DetectionConfirmationStage detectionConfirmationStage;
+    private final ScoringPolicyService scoringPolicyService;
+    private final FrameLatencyTracker frameLatencyTracker;
+    private final SessionBroadcastService sessionBroadcastService;
     
-    @Value("${app.detection.cooldown-seconds:30}")
-    private int cooldownSeconds;
+    /**
+     * Resolves each referenced session once, then applies that session's frames on its
+     * mailbox so detections of one session are processed in order by a single thread.
+     * Outcomes are returned in the order of the submitted frames.
+     * <p>
+     * The session's scoring policy is resolved once per batch, so a policy swap takes
+     * effect from the next batch on.
+     * <p>
+     * Each session's frames pass admission control first: under pressure, low-weight
+     * detections come back as {@code SHED}, and if no session has room at all the whole
+     * request is refused with an {@link IngestOverloadedException}.
+     */
+    public FrameIngestResultDTO processFrames(List<RealTimeDetectionDTO> frames) {
+        Map<Long, SessionRegistry.Entry> sessions = new HashMap<>();
+        Map<Long, List<RealTimeDetectionDTO>> framesBySession = new LinkedHashMap<>();
+        Map<Long, List<FrameTrace>> tracesBySession = new HashMap<>();
+        
+        for (RealTimeDetectionDTO frame : frames) {
+            Long sessionId = frame.getSessionId();
+            if (sessionId == null) {
+                continue;
+            }
+            SessionRegistry.Entry session = sessions.computeIfAbsent(sessionId, sessionRegistry::find);
+            if (session != null && session.acceptsDetections()) {
+                framesBySession.computeIfAbsent(sessionId, id -> new ArrayList<>()).add(frame);
+                tracesBySession.computeIfAbsent(sessionId, id -> new ArrayList<>())
+                        .add(frameLatencyTracker.start(sessionId, frame.getFrameNumber(), frame.getTimestamp()));
+            }
+        }
+        
+        Map<Long, CompletableFuture<List<List<FrameIngestResultDTO.DetectionOutcome>>>> pending = new HashMap<>();
+        Set<Long> overloaded = new HashSet<>();
+        framesBySession.forEach((sessionId, sessionFrames) -> {
+            SessionRegistry.Entry session = sessions.get(sessionId);
+            CompiledScoringPolicy policy = scoringPolicyService.resolve(session.scoringPolicyId());
+            int queued = sessionFrames.stream().mapToInt(frame -> frame.getDetections() != null ? frame.getDetections().size() : 0).sum();
+            int cutoffWeight = detectionAdmissionService.cutoffWeight(sessionId, policy, queued);
+            if (cutoffWeight == DetectionAdmissionService.REJECT_ALL) {
+                overloaded.add(sessionId);
+                return;
+            }
+            Integer expectedCount = session.expectedCount();
+            detectionAdmissionService.enqueued(sessionId, queued);
+            List<FrameTrace> sessionTraces = tracesBySession.get(sessionId);
+            CompletableFuture<List<List<FrameIngestResultDTO.DetectionOutcome>>> future = sessionMailboxService.submit(sessionId,
+                    () -> applyFrames(sessionId, expectedCount, policy, cutoffWeight, sessionFrames, sessionTraces));
+            future.whenComplete((result, error) -> detectionAdmissionService.completed(sessionId, queued));
+            pending.put(sessionId, future);
+        });
+        
+        if (pending.isEmpty() && !overloaded.isEmpty()) {
+            throw detectionAdmissionService.overloaded(overloaded.iterator().next());
+        }
+        
+        Map<Long, Iterator<List<FrameIngestResultDTO.DetectionOutcome>>> results = new HashMap<>();
+        pending.forEach((sessionId, future) -> {
+            List<List<FrameIngestResultDTO.DetectionOutcome>> sessionResults = SessionMailboxService.await(future);
+            if (sessionResults != null) {
+                results.put(sessionId, sessionResults.iterator());
+            }
+        });
+        
+        List<FrameIngestResultDTO.DetectionOutcome> outcomes = new ArrayList<>();
+        int accepted = 0, pendingConfirmation = 0, cooledDown = 0, rejected = 0, shed = 0;
+        
+        for (RealTimeDetectionDTO frame : frames) {
+            Iterator<List<FrameIngestResultDTO.DetectionOutcome>> sessionResults = results.get(frame.getSessionId());
+            List<FrameIngestResultDTO.DetectionOutcome> frameOutcomes;
+            if (sessionResults != null) {
+                frameOutcomes = sessionResults.next();
+            } else if (pending.containsKey(frame.getSessionId())) {
+                frameOutcomes = rejectFrame(frame, closedRejection(frame.getSessionId()));
+            } else if (overloaded.contains(frame.getSessionId())) {
+                frameOutcomes = shedFrame(frame, scoringPolicyService.resolve(sessions.get(frame.getSessionId()).scoringPolicyId()));
+            } else {
+                frameOutcomes = rejectFrame(frame, sessionRejection(frame.getSessionId(), sessions.get(frame.getSessionId())));
+            }
+            
+            for (FrameIngestResultDTO.DetectionOutcome outcome : frameOutcomes) {
+                switch (outcome.getStatus()) {
+                    case ACCEPTED -> accepted++;
+                    case PENDING -> pendingConfirmation++;
+                    case COOLED_DOWN -> cooledDown++;
+                    case SHED -> shed++;
+                    default -> rejected++;
+                }
+            }
+            outcomes.addAll(frameOutcomes);
+        }
+        
+        return FrameIngestResultDTO.builder()
+                .frames(frames.size())
+                .accepted(accepted)
+                .cooledDown(cooledDown)
+                .rejected(rejected)
+                .pending(pendingConfirmation)
+                .shed(shed)
+                .retryAfterMs(shed > 0 ? detectionAdmissionService.getRetryAfterMs() : null)
+                .outcomes(outcomes)
+                .build();
+    }
     
-    @Value("${app.detection.decay-points-per-minute:2}")
-    private int decayPointsPerMinute;
+    private List<List<FrameIngestResultDTO.DetectionOutcome>> applyFrames(Long sessionId, Integer expectedCount,
+                                                                          CompiledScoringPolicy policy, int cutoffWeight,
+                                                                          List<RealTimeDetectionDTO> frames, List<FrameTrace> traces) {
+        if (closedSince(sessionId)) {
+            return null;
+        }
+        List<List<FrameIngestResultDTO.DetectionOutcome>> results = new ArrayList<>(frames.size());
+        List<PendingDetection> accepted = new ArrayList<>();
+        
+        for (int f = 0; f < frames.size(); f++) {
+            RealTimeDetectionDTO frame = frames.get(f);
+            int firstAccepted = accepted.size();
+            List<RealTimeDetectionDTO.DetectionResult> detections = frame.getDetections() != null ? frame.getDetections() : List.of();
+            List<FrameIngestResultDTO.DetectionOutcome> outcomes = new ArrayList<>(detections.size());
+            boolean synthetic = frame.getFrameNumber() == null;
+            int frameNumber = synthetic
+                    ? detectionConfirmationStage.nextFrameNumber(sessionId)
+                    : frame.getFrameNumber();
+            
+            for (int i = 0; i < detections.size(); i++) {
+                RealTimeDetectionDTO.DetectionResult detection = detections.get(i);
+                FrameIngestResultDTO.DetectionOutcome outcome = newOutcome(frame, i, detection);
+                
+                if (detection.getPersonId() == null || detection.getClassName() == null) {
+                    outcome.setStatus(FrameIngestResultDTO.Status.REJECTED);
+                    outcome.setReason("Detection requires personId and className");
+                } else {
+                    DetectionEvent.EventType eventType = policy.eventType(detection.getClassName());
+                    outcome.setEventType(eventType.name());
+                    if (detectionAdmissionService.shouldShed(policy, cutoffWeight, eventType)) {
+                        outcome.setStatus(FrameIngestResultDTO.Status.SHED);
+                        outcome.setReason("Shed under load");
+                        outcomes.add(outcome);
+                        continue;
+                    }
+                    double confidence = detectionConfirmationStage.observe(sessionId, detection.getPersonId(), eventType,
+                            frameNumber, synthetic, detection.getConfidence() != null ? detection.getConfidence() : 1.0);
+                    if (Double.isNaN(confidence)) {
+                        outcome.setStatus(FrameIngestResultDTO.Status.PENDING);
+                        outcomes.add(outcome);
+                        continue;
+                    }
+                    PendingDetection pending = applyDetection(sessionId, policy, detection, eventType, confidence);
+                    if (pending != null) {
+                        accepted.add(pending);
+                        outcome.setStatus(FrameIngestResultDTO.Status.ACCEPTED);
+                    } else {
+                        outcome.setStatus(FrameIngestResultDTO.Status.COOLED_DOWN);
+                    }
+                }
+                outcomes.add(outcome);
+            }
+            
+            if (frame.getHeadCount() != null && frame.getHeadCount().getDetected() != null) {
+                accepted.addAll(applyHeadCount(sessionId, expectedCount, policy, cutoffWeight, frame.getHeadCount().getDetected()));
+            }
+            traceProcessed(traces.get(f), accepted, firstAccepted);
+            results.add(outcomes);
+        }
+        
+        persistAndPublish(sessionId, policy, accepted, traces);
+        return results;
+    }
     
-    private final Map<String, Map<DetectionEvent.EventType, LocalDateTime>> lastDetectionTime = new ConcurrentHashMap<>();
+    private List<FrameIngestResultDTO.DetectionOutcome> rejectFrame(RealTimeDetectionDTO frame, String reason) {
+        List<RealTimeDetectionDTO.DetectionResult> detections = frame.getDetections() != null ? frame.getDetections() : List.of();
+        List<FrameIngestResultDTO.DetectionOutcome> outcomes = new ArrayList<>(detections.size());
+        for (int i = 0; i < detections.size(); i++) {
+            FrameIngestResultDTO.DetectionOutcome outcome = newOutcome(frame, i, detections.get(i));
+            outcome.setStatus(FrameIngestResultDTO.Status.REJECTED);
+            outcome.setReason(reason);
+            outcomes.add(outcome);
+        }
+        return outcomes;
+    }
     
-    private static final Map<DetectionEvent.EventType, Integer> POINTS_MAP;
+    private String sessionRejection(Long sessionId, SessionRegistry.Entry session) {
+        if (session == null) {
+            return "Session not found: " + sessionId;
+        }
+        return session.closing() ? closedRejection(sessionId) : "Session " + sessionId + " is " + session.status();
+    }
     
-    static {
-        Map<DetectionEvent.EventType, Integer> temp = new HashMap<>();
-        temp.put(DetectionEvent.EventType.PHONE_DETECTED, 25);
-        temp.put(DetectionEvent.EventType.EARPHONE_DETECTED, 30);
-        temp.put(DetectionEvent.EventType.SMARTWATCH_DETECTED, 20);
-        temp.put(DetectionEvent.EventType.CHIT_DETECTED, 20);
-        temp.put(DetectionEvent.EventType.TEXTBOOK_DETECTED, 35);
-        temp.put(DetectionEvent.EventType.NOTEBOOK_DETECTED, 30);
-        temp.put(DetectionEvent.EventType.ELECTRONIC_DEVICE_DETECTED, 25);
-        temp.put(DetectionEvent.EventType.HEAD_TURNED, 10);
-        temp.put(DetectionEvent.EventType.LOOKING_AT_NEIGHBOR, 8);
-        temp.put(DetectionEvent.EventType.LEANING_TOWARD_OTHER, 10);
-        temp.put(DetectionEvent.EventType.PASSING_GESTURE, 15);
-        temp.put(DetectionEvent.EventType.HEAD_COUNT_MISMATCH, 40);
-        temp.put(DetectionEvent.EventType.EXTRA_PERSON, 50);
-        temp.put(DetectionEvent.EventType.INTERACTION_DETECTED, 15);
-        POINTS_MAP = Collections.unmodifiableMap(temp);
+    private static String closedRejection(Long sessionId) {
+        return "Session " + sessionId + " is no longer accepting detections";
     }
     
-    @Transactional
-    public DetectionEventDTO processDetection(Long sessionId, RealTimeDetectionDTO.DetectionResult detection) {
-        ExamSession session = examSessionRepository.findById(sessionId)
-                .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
+    /**
+     * Checked at the start of every mailbox batch. A session closed while the batch was
+     * queued gets nothing applied, and its mailbox is closed again, since the session's own
+     * release may already have run.
+     */
+    private boolean closedSince(Long sessionId) {
+        if (sessionRegistry.isAccepting(sessionId)) {
+            return false;
+        }
+        sessionMailboxService.close(sessionId);
+        return true;
+    }
+    
+    private List<FrameIngestResultDTO.DetectionOutcome> shedFrame(RealTimeDetectionDTO frame, CompiledScoringPolicy policy) {
+        List<RealTimeDetectionDTO.DetectionResult> detections = frame.getDetections() != null ? frame.getDetections() : List.of();
+        List<FrameIngestResultDTO.DetectionOutcome> outcomes = new ArrayList<>(detections.size());
+        for (int i = 0; i < detections.size(); i++) {
+            RealTimeDetectionDTO.DetectionResult detection = detections.get(i);
+            FrameIngestResultDTO.DetectionOutcome outcome = newOutcome(frame, i, detection);
+            if (detection.getClassName() != null) {
+                DetectionEvent.EventType eventType = policy.eventType(detection.getClassName());
+                detectionAdmissionService.shouldShed(policy, DetectionAdmissionService.REJECT_ALL, eventType);
+                outcome.setEventType(eventType.name());
+            }
+            outcome.setStatus(FrameIngestResultDTO.Status.SHED);
+            outcome.setReason("Ingest overloaded");
+            outcomes.add(outcome);
+        }
+        return outcomes;
+    }
+    
+    private FrameIngestResultDTO.DetectionOutcome newOutcome(RealTimeDetectionDTO frame, int index, RealTimeDetectionDTO.DetectionResult detection) {
+        return FrameIngestResultDTO.DetectionOutcome.builder()
+                .sessionId(frame.getSessionId())
+                .frameNumber(frame.getFrameNumber())
+                .index(index)
+                .personId(detection.getPersonId())
+                .build();
+    }
+    
+    /**
+     * Binary counterpart of {@link #processFrames}: same pipeline, but only the totals
+     * are reported back. Overload is reported through the shed count rather than an
+     * exception so the connection can keep streaming.
+     */
+    public FrameIngestResultDTO processBinaryFrames(List<BinaryDetectionFrame> frames) {
+        Map<Long, SessionRegistry.Entry> sessions = new HashMap<>();
+        Map<Long, List<BinaryDetectionFrame>> framesBySession = new LinkedHashMap<>();
+        Map<Long, List<FrameTrace>> tracesBySession = new HashMap<>();
+        int rejected = 0;
         
-        String cooldownKey = sessionId + "-" + detection.getPersonId();
-        Map<DetectionEvent.EventType, LocalDateTime> personDetections = lastDetectionTime.computeIfAbsent(cooldownKey, k -> new ConcurrentHashMap<>());
+        for (BinaryDetectionFrame frame : frames) {
+            Long sessionId = frame.getSessionId();
+            SessionRegistry.Entry session = sessions.computeIfAbsent(sessionId, sessionRegistry::find);
+            if (session != null && session.acceptsDetections()) {
+                framesBySession.computeIfAbsent(sessionId, id -> new ArrayList<>()).add(frame);
+                tracesBySession.computeIfAbsent(sessionId, id -> new ArrayList<>())
+                        .add(frameLatencyTracker.start(sessionId, frame.getFrameNumber(), null));
+            } else {
+                rejected += frame.getSize();
+            }
+        }
         
-        DetectionEvent.EventType eventType = getEventType(detection.getClassName());
-        LocalDateTime lastTime = personDetections.get(eventType);
+        List<CompletableFuture<int[]>> pending = new ArrayList<>();
+        int shed = 0;
+        for (Map.Entry<Long, List<BinaryDetectionFrame>> entry : framesBySession.entrySet()) {
+            Long sessionId = entry.getKey();
+            List<BinaryDetectionFrame> sessionFrames = entry.getValue();
+            SessionRegistry.Entry session = sessions.get(sessionId);
+            CompiledScoringPolicy policy = scoringPolicyService.resolve(session.scoringPolicyId());
+            int queued = sessionFrames.stream().mapToInt(BinaryDetectionFrame::getSize).sum();
+            int cutoffWeight = detectionAdmissionService.cutoffWeight(sessionId, policy, queued);
+            if (cutoffWeight == DetectionAdmissionService.REJECT_ALL) {
+                for (BinaryDetectionFrame frame : sessionFrames) {
+                    for (int i = 0; i < frame.getSize(); i++) {
+                        if (frame.getEventTypes()[i] != null) {
+                            detectionAdmissionService.shouldShed(policy, cutoffWeight, frame.getEventTypes()[i]);
+                        }
+                    }
+                    shed += frame.getSize();
+                }
+                continue;
+            }
+            
+            Integer expectedCount = session.expectedCount();
+            detectionAdmissionService.enqueued(sessionId, queued);
+            List<FrameTrace> sessionTraces = tracesBySession.get(sessionId);
+            CompletableFuture<int[]> future = sessionMailboxService.submit(sessionId,
+                    () -> applyBinaryFrames(sessionId, expectedCount, policy, cutoffWeight, sessionFrames, sessionTraces));
+            future.whenComplete((result, error) -> detectionAdmissionService.completed(sessionId, queued));
+            pending.add(future);
+        }
+        
+        int accepted = 0, pendingConfirmation = 0, cooledDown = 0;
+        for (CompletableFuture<int[]> future : pending) {
+            int[] counts = SessionMailboxService.await(future);
+            accepted += counts[0];
+            cooledDown += counts[1];
+            rejected += counts[2];
+            shed += counts[3];
+            pendingConfirmation += counts[4];
+        }
         
-        if (lastTime != null && lastTime.plusSeconds(cooldownSeconds).isAfter(LocalDateTime.now())) {
+        return FrameIngestResultDTO.builder()
+                .frames(frames.size())
+                .accepted(accepted)
+                .cooledDown(cooledDown)
+                .rejected(rejected)
+                .pending(pendingConfirmation)
+                .shed(shed)
+                .retryAfterMs(shed > 0 ? detectionAdmissionService.getRetryAfterMs() : null)
+                .build();
+    }
+    
+    private int[] applyBinaryFrames(Long sessionId, Integer expectedCount, CompiledScoringPolicy policy, int cutoffWeight,
+                                    List<BinaryDetectionFrame> frames, List<FrameTrace> traces) {
+        int[] counts = new int[5];
+        if (closedSince(sessionId)) {
+            counts[2] = frames.stream().mapToInt(BinaryDetectionFrame::getSize).sum();
+            return counts;
+        }
+        List<PendingDetection> accepted = new ArrayList<>();
+        
+        for (int f = 0; f < frames.size(); f++) {
+            BinaryDetectionFrame frame = frames.get(f);
+            int firstAccepted = accepted.size();
+            for (int i = 0; i < frame.getSize(); i++) {
+                DetectionEvent.EventType eventType = frame.getEventTypes()[i];
+                String personId = frame.getPersonIds()[i];
+                if (eventType == null || personId == null) {
+                    counts[2]++;
+                    continue;
+                }
+                if (detectionAdmissionService.shouldShed(policy, cutoffWeight, eventType)) {
+                    counts[3]++;
+                    continue;
+                }
+                
+                double confidence = detectionConfirmationStage.observe(sessionId, personId, eventType,
+                        frame.getFrameNumber(), false, frame.getConfidences()[i]);
+                if (Double.isNaN(confidence)) {
+                    counts[4]++;
+                    continue;
+                }
+                
+                boolean box = frame.hasBox(i);
+                PendingDetection pending = applyDetection(sessionId, policy, personId, eventType, confidence,
+                        box ? frame.getX(i) : null, box ? frame.getY(i) : null,
+                        box ? frame.getWidth(i) : null, box ? frame.getHeight(i) : null, null);
+                if (pending != null) {
+                    accepted.add(pending);
+                    counts[0]++;
+                } else {
+                    counts[1]++;
+                }
+            }
+            
+            if (frame.getHeadCount() != BinaryDetectionFrame.NO_HEAD_COUNT) {
+                accepted.addAll(applyHeadCount(sessionId, expectedCount, policy, cutoffWeight, frame.getHeadCount()));
+            }
+            traceProcessed(traces.get(f), accepted, firstAccepted);
+        }
+        
+        persistAndPublish(sessionId, policy, accepted, traces);
+        return counts;
+    }
+    
+    /**
+     * Hands a batch's accepted detections to persistence and to the broadcaster, which
+     * folds them into the session's next delta. Runs on the session's mailbox, like the
+     * scoring before it, so delta versions follow the order in which the scoreboard changed.
+     */
+    private void persistAndPublish(Long sessionId, CompiledScoringPolicy policy, List<PendingDetection> accepted,
+                                   List<FrameTrace> traces) {
+        try {
+            detectionPersistenceService.persistAll(accepted);
+        } catch (RuntimeException e) {
+            // Nothing is published for these frames, close their broadcast stage here
+            for (FrameTrace trace : traces) {
+                if (trace != null) {
+                    trace.broadcast(false);
+                }
+            }
+            throw e;
+        }
+        sessionBroadcastService.changed(sessionId, policy, accepted, traces);
+    }
+    
+    /**
+     * Marks a frame as scored and attaches its trace to the detections it produced,
+     * {@code accepted[from..]}, so the persistence stage is timed as well.
+     */
+    private static void traceProcessed(FrameTrace trace, List<PendingDetection> accepted, int from) {
+        if (trace == null) {
+            return;
+        }
+        for (int i = from; i < accepted.size(); i++) {
+            accepted.get(i).setTrace(trace);
+        }
+        trace.processed(accepted.size() - from);
+    }
+    
+    private PendingDetection applyDetection(Long sessionId, CompiledScoringPolicy policy, RealTimeDetectionDTO.DetectionResult detection,
+                                            DetectionEvent.EventType eventType, double confidence) {
+        return applyDetection(sessionId, policy, detection.getPersonId(), eventType, confidence,
+                detection.getX(), detection.getY(), detection.getWidth(), detection.getHeight(), detection.getDescription());
+    }
+    
+    private PendingDetection applyDetection(Long sessionId, CompiledScoringPolicy policy, String personId,
+                                            DetectionEvent.EventType eventType, Double confidence,
+                                            Integer x, Integer y, Integer width, Integer height, String description) {
+        if (!detectionCooldownTable.tryAcquire(sessionId, personId, eventType)) {
             log.debug("Detection cooldown active for {} in session {}", eventType, sessionId);
             return null;
         }
         
-        personDetections.put(eventType, LocalDateTime.now());
+        int points = (int) (policy.points(eventType) * (confidence != null ? confidence : 1.0));
         
-        int points = calculatePoints(eventType, detection.getConfidence());
-        
-        DetectionEvent event = DetectionEvent.builder()
-                .session(session)
-                .timestamp(LocalDateTime.now())
-                .personId(detection.getPersonId())
+        PendingDetection pending = PendingDetection.builder()
+                .sessionId(sessionId)
+                .personId(personId)
                 .eventType(eventType)
-                .description(detection.getDescription())
-                .confidence(detection.getConfidence())
+                .description(description)
+                .confidence(confidence)
                 .points(points)
-                .boundingBoxX(detection.getX())
-                .boundingBoxY(detection.getY())
-                .boundingBoxWidth(detection.getWidth())
-                .boundingBoxHeight(detection.getHeight())
-                .isResolved(false)
+                .x(x)
+                .y(y)
+                .width(width)
+                .height(height)
+                .timestamp(LocalDateTime.now())
+                .alertLevel(policy.alertLevel(points))
                 .build();
         
-        event = detectionEventRepository.save(event);
+        studentScoreAggregator.record(sessionId, personId, eventType, points * policy.getScoreMultiplier());
         
-        updateStudentScore(session, detection.getPersonId(), eventType, points);
-        createAlertIfNeeded(session, eventType, points, detection.getPersonId());
+        log.debug("Processed detection: {} for person {} in session {}", eventType, personId, sessionId);
         
-        log.info("Processed detection: {} for person {} in session {}", eventType, detection.getPersonId(), sessionId);
-        
-        return DetectionEventDTO.fromEntity(event);
+        return pending;
     }
     
-    @Transactional
-    public void updateHeadCount(Long sessionId, int detectedCount) {
-        ExamSession session = examSessionRepository.findById(sessionId)
-                .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
-        
-        session.setActualCount(detectedCount);
-        examSessionRepository.save(session);
-        
-        if (session.getExpectedCount() != null && detectedCount != session.getExpectedCount()) {
-            int diff = Math.abs(detectedCount - session.getExpectedCount());
-            if (detectedCount > session.getExpectedCount()) {
-                for (int i = 0; i < diff; i++) {
-                    createDetectionEvent(session, "extra_" + i, DetectionEvent.EventType.EXTRA_PERSON, 50);
-                }
-            } else {
-                createDetectionEvent(session, "missing", DetectionEvent.EventType.HEAD_COUNT_MISMATCH, 40);
-            }
+    /**
+     * Feeds a frame's head count into the session's smoothing window. The actual count is
+     * written only when the smoothed value changes, an {@code EXTRA_PERSON} event is raised
+     * for each newly appearing extra person and {@code HEAD_COUNT_MISMATCH} once when
+     * people go missing; a shed event stays pending and is retried on the next frame.
+     */
+    private List<PendingDetection> applyHeadCount(Long sessionId, Integer expectedCount, CompiledScoringPolicy policy,
+                                                  int cutoffWeight, int detectedCount) {
+        HeadCountTracker.Window window = headCountTracker.getWindow(sessionId);
+        int smoothedCount = window.add(detectedCount);
+        if (window.changeReportedCount(smoothedCount)) {
+            examSessionRepository.updateActualCount(sessionId, smoothedCount);
+        }
+        
+        List<PendingDetection> events = new ArrayList<>();
+        if (expectedCount == null) {
+            return events;
         }
+        
+        int extra = Math.max(0, smoothedCount - expectedCount);
+        int reportedExtra = Math.min(window.getReportedExtra(), extra);
+        while (reportedExtra < extra
+                && !detectionAdmissionService.shouldShed(policy, cutoffWeight, DetectionEvent.EventType.EXTRA_PERSON)) {
+            events.add(createDetectionEvent(sessionId, "extra_" + reportedExtra, DetectionEvent.EventType.EXTRA_PERSON,
+                    policy.points(DetectionEvent.EventType.EXTRA_PERSON)));
+            reportedExtra++;
+        }
+        window.setReportedExtra(reportedExtra);
+        
+        boolean missing = smoothedCount < expectedCount;
+        if (!missing) {
+            window.setReportedMissing(false);
+        } else if (!window.isReportedMissing()
+                && !detectionAdmissionService.shouldShed(policy, cutoffWeight, DetectionEvent.EventType.HEAD_COUNT_MISMATCH)) {
+            events.add(createDetectionEvent(sessionId, "missing", DetectionEvent.EventType.HEAD_COUNT_MISMATCH,
+                    policy.points(DetectionEvent.EventType.HEAD_COUNT_MISMATCH)));
+            window.setReportedMissing(true);
+        }
+        return events;
     }
     
-    private void createDetectionEvent(ExamSession session, String personId, DetectionEvent.EventType eventType, int points) {
-        DetectionEvent event = DetectionEvent.builder()
-                .session(session)
-                .timestamp(LocalDateTime.now())
+    private PendingDetection createDetectionEvent(Long sessionId, String personId, DetectionEvent.EventType eventType, int points) {
+        PendingDetection event = PendingDetection.builder()
+                .sessionId(sessionId)
                 .personId(personId)
                 .eventType(eventType)
                 .description(eventType.name())
                 .confidence(1.0)
                 .points(points)
-                .isResolved(false)
+                .timestamp(LocalDateTime.now())
                 .build();
         
-        detectionEventRepository.save(event);
+        studentScoreAggregator.recordEvent(sessionId, eventType);
+        return event;
     }
     
-    private void updateStudentScore(ExamSession session, String trackingId, DetectionEvent.EventType eventType, int points) {
-        StudentScore score = studentScoreRepository
-                .findBySessionIdAndTrackingId(session.getId(), trackingId)
-                .orElseGet(() -> {
-                    StudentScore newScore = StudentScore.builder()
-                            .session(session)
-                            .trackingId(trackingId)
-                            .build();
-                    return studentScoreRepository.save(newScore);
-                });
-        
-        double confidenceMultiplier = score.getTotalScore() != null ? 0.85 : 1.0;
-        double adjustedPoints = points * confidenceMultiplier;
-        
-        score.setTotalScore((score.getTotalScore() != null ? score.getTotalScore() : 0) + adjustedPoints);
-        score.setViolationCount((score.getViolationCount() != null ? score.getViolationCount() : 0) + 1);
-        score.setLastSeen(LocalDateTime.now());
-        
-        incrementViolationCount(score, eventType);
-        updateAlertLevel(score);
-        
-        studentScoreRepository.save(score);
+    @Transactional(readOnly = true)
+    public List<DetectionEventDTO> getSessionDetections(Long sessionId) {
+        return detectionEventRepository.findBySessionIdOrderByTimestampDesc(sessionId)
+                .stream()
+                .map(DetectionEventDTO::fromEntity)
+                .collect(Collectors.toList());
     }
     
-    private void incrementViolationCount(StudentScore score, DetectionEvent.EventType eventType) {
-        switch (eventType) {
-            case PHONE_DETECTED:
-                score.setPhoneCount((score.getPhoneCount() != null ? score.getPhoneCount() : 0) + 1);
-                break;
-            case EARPHONE_DETECTED:
-                score.setEarphoneCount((score.getEarphoneCount() != null ? score.getEarphoneCount() : 0) + 1);
-                break;
-            case SMARTWATCH_DETECTED:
-                score.setWatchCount((score.getWatchCount() != null ? score.getWatchCount() : 0) + 1);
-                break;
-            case CHIT_DETECTED:
-                score.setChitCount((score.getChitCount() != null ? score.getChitCount() : 0) + 1);
-                break;
-            case TEXTBOOK_DETECTED:
-                score.setTextbookCount((score.getTextbookCount() != null ? score.getTextbookCount() : 0) + 1);
-                break;
-            case NOTEBOOK_DETECTED:
-                score.setNotebookCount((score.getNotebookCount() != null ? score.getNotebookCount() : 0) + 1);
-                break;
-            default:
-                score.setBehaviorCount((score.getBehaviorCount() != null ? score.getBehaviorCount() : 0) + 1);
-                break;
+    @Transactional(readOnly = true)
+    public List<StudentScoreDTO> getSessionStudentScores(Long sessionId) {
+        List<StudentScoreDTO> liveScores = studentScoreAggregator.getLiveScores(sessionId);
+        if (liveScores != null) {
+            return liveScores;
         }
+        
+        long nowMillis = scoreDecay.evaluationMillis(examSessionRepository.findById(sessionId).orElse(null));
+        CompiledScoringPolicy policy = scoringPolicyService.forSession(sessionId);
+        return studentScoreRepository.findBySessionId(sessionId)
+                .stream()
+                .map(score -> scoreDecay.toDTO(score, nowMillis, policy))
+                .sorted(Comparator.comparing(StudentScoreDTO::getTotalScore).reversed())
+                .collect(Collectors.toList());
     }
     
-    private void updateAlertLevel(StudentScore score) {
-        double totalScore = score.getTotalScore();
-        
-        if (totalScore >= 86) {
-            score.setAlertLevel(StudentScore.AlertLevel.CRITICAL);
-        } else if (totalScore >= 61) {
-            score.setAlertLevel(StudentScore.AlertLevel.SUSPICIOUS);
-        } else if (totalScore >= 16) {
-            score.setAlertLevel(StudentScore.AlertLevel.WATCH);
-        } else {
-            score.setAlertLevel(StudentScore.AlertLevel.NORMAL);
+    /**
+     * Live sessions are read from their scoreboard, at the current delta version; others
+     * from the database, as version 0.
+     */
+    @Transactional(readOnly = true)
+    public SessionSnapshotDTO getSessionSnapshot(Long sessionId) {
+        SessionSnapshotDTO snapshot = studentScoreAggregator.getLiveSnapshot(sessionId);
+        if (snapshot != null) {
+            return snapshot;
         }
+        return SessionSnapshotDTO.builder()
+                .sessionId(sessionId)
+                .version(0L)
+                .timestamp(System.currentTimeMillis())
+                .scores(getSessionStudentScores(sessionId))
+                .stats(calculateSessionStatsFromDatabase(sessionId))
+                .build();
     }
     
-    private void createAlertIfNeeded(ExamSession session, DetectionEvent.EventType eventType, int points, String personId) {
-        AlertHistory.AlertLevel alertLevel = getAlertLevel(points);
-        
-        if (alertLevel != AlertHistory.AlertLevel.GREEN) {
-            AlertHistory alert = AlertHistory.builder()
-                    .session(session)
-                    .alertLevel(alertLevel)
-                    .message(String.format("%s detected for person %s (%d points)", eventType.name(), personId, points))
-                    .personId(personId)
-                    .eventType(eventType.name())
-                    .isAcknowledged(false)
-                    .timestamp(LocalDateTime.now())
-                    .build();
-            
-            alertHistoryRepository.save(alert);
+    /**
+     * What a client that last saw update {@code afterSeq} of stream {@code epoch} of the
+     * session has missed, or a snapshot when that is no longer buffered or the stream has
+     * restarted since.
+     */
+    @Transactional(readOnly = true)
+    public SessionReplayDTO resumeSession(Long sessionId, long epoch, long afterSeq) {
+        SessionReplayDTO replay = sessionBroadcastService.replay(sessionId, epoch, afterSeq);
+        if (replay.getUpdates() == null) {
+            replay.setSnapshot(getSessionSnapshot(sessionId));
         }
+        return replay;
     }
-    
-    private AlertHistory.AlertLevel getAlertLevel(int points) {
-        if (points >= 86) return AlertHistory.AlertLevel.CRITICAL;
-        if (points >= 61) return AlertHistory.AlertLevel.RED;
-        if (points >= 36) return AlertHistory.AlertLevel.ORANGE;
-        if (points >= 16) return AlertHistory.AlertLevel.YELLOW;
-        return AlertHistory.AlertLevel.GREEN;
+
+    /**
+     * Counters of every active session. Each session's stream position is read before its
+     * counters, so the counters cover at least the updates up to it. Sessions with a live
+     * scoreboard are answered from memory; the rest share one query for their event counts
+     * and one for their scores, however many there are.
+     */
+    @Transactional(readOnly = true)
+    public List<SessionSummaryDTO> getSessionOverview() {
+        List<ExamSession> sessions = examSessionRepository.findByStatus(ExamSession.SessionStatus.ACTIVE);
+        Map<Long, SessionReplayDTO> positions = new HashMap<>();
+        Map<Long, RealTimeDetectionDTO.SessionStats> stats = new HashMap<>();
+        Map<Long, ExamSession> stored = new LinkedHashMap<>();
+        for (ExamSession session : sessions) {
+            positions.put(session.getId(), sessionBroadcastService.position(session.getId()));
+            RealTimeDetectionDTO.SessionStats liveStats = studentScoreAggregator.getLiveStats(session.getId());
+            if (liveStats != null) {
+                stats.put(session.getId(), liveStats);
+            } else {
+                stored.put(session.getId(), session);
+            }
+        }
+        
+        if (!stored.isEmpty()) {
+            Map<Long, Map<DetectionEvent.EventType, Long>> counts = new HashMap<>();
+            for (Object[] row : detectionEventRepository.countBySessionIdInGroupByEventType(stored.keySet())) {
+                counts.computeIfAbsent((Long) row[0], id -> new EnumMap<>(DetectionEvent.EventType.class))
+                        .put((DetectionEvent.EventType) row[1], (Long) row[2]);
+            }
+            Map<Long, List<StudentScore>> scores = studentScoreRepository.findBySessionIdIn(stored.keySet()).stream()
+                    .collect(Collectors.groupingBy(score -> score.getSession().getId()));
+            stored.forEach((sessionId, session) -> stats.put(sessionId, buildSessionStats(
+                    counts.getOrDefault(sessionId, Map.of()),
+                    scores.getOrDefault(sessionId, List.of()),
+                    scoringPolicyService.forSession(sessionId),
+                    scoreDecay.evaluationMillis(session))));
+        }
+        
+        List<SessionSummaryDTO> overview = new ArrayList<>(sessions.size());
+        for (ExamSession session : sessions) {
+            SessionReplayDTO position = positions.get(session.getId());
+            overview.add(SessionSummaryDTO.builder()
+                    .sessionId(session.getId())
+                    .name(session.getName())
+                    .epoch(position.getEpoch())
+                    .seq(position.getSeq())
+                    .stats(stats.get(session.getId()))
+                    .build());
+        }
+        return overview;
+    }
+
+    @Transactional(readOnly = true)
+    public RealTimeDetectionDTO.SessionStats calculateSessionStats(Long sessionId) {
+        RealTimeDetectionDTO.SessionStats liveStats = studentScoreAggregator.getLiveStats(sessionId);
+        if (liveStats != null) {
+            return liveStats;
+        }
+        
+        return calculateSessionStatsFromDatabase(sessionId);
     }
     
-    private int calculatePoints(DetectionEvent.EventType eventType, Double confidence) {
-        int basePoints = POINTS_MAP.getOrDefault(eventType, 10);
-        return (int) (basePoints * (confidence != null ? confidence : 1.0));
+    public Map<String, Object> verifySessionStats(Long sessionId) throws InterruptedException {
+        boolean flushed = detectionPersistenceService.awaitFlush(5000);
+        studentScoreAggregator.checkpoint(sessionId);
+        
+        // Both sides decay to the same instant
+        long nowMillis = System.currentTimeMillis();
+        RealTimeDetectionDTO.SessionStats liveStats = studentScoreAggregator.getLiveStats(sessionId, nowMillis);
+        RealTimeDetectionDTO.SessionStats databaseStats = calculateSessionStatsFromDatabase(sessionId, nowMillis);
+        
+        List<String> mismatches = new ArrayList<>();
+        if (liveStats != null) {
+            compare(mismatches, "totalDetections", liveStats.getTotalDetections(), databaseStats.getTotalDetections());
+            compare(mismatches, "phoneCount", liveStats.getPhoneCount(), databaseStats.getPhoneCount());
+            compare(mismatches, "earphoneCount", liveStats.getEarphoneCount(), databaseStats.getEarphoneCount());
+            compare(mismatches, "watchCount", liveStats.getWatchCount(), databaseStats.getWatchCount());
+            compare(mismatches, "chitCount", liveStats.getChitCount(), databaseStats.getChitCount());
+            compare(mismatches, "textbookCount", liveStats.getTextbookCount(), databaseStats.getTextbookCount());
+            compare(mismatches, "notebookCount", liveStats.getNotebookCount(), databaseStats.getNotebookCount());
+            compare(mismatches, "behaviorCount", liveStats.getBehaviorCount(), databaseStats.getBehaviorCount());
+            compare(mismatches, "suspiciousStudents", liveStats.getSuspiciousStudents(), databaseStats.getSuspiciousStudents());
+            compare(mismatches, "normalStudents", liveStats.getNormalStudents(), databaseStats.getNormalStudents());
+            if (Math.abs(liveStats.getAverageScore() - databaseStats.getAverageScore()) > 1e-6) {
+                mismatches.add("averageScore");
+            }
+            if (Math.abs(liveStats.getMaxScore() - databaseStats.getMaxScore()) > 1e-6) {
+                mismatches.add("maxScore");
+            }
+        }
+        
+        if (!mismatches.isEmpty()) {
+            log.warn("Session {} live stats differ from database in {}", sessionId, mismatches);
+        }
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("sessionId", sessionId);
+        result.put("live", liveStats != null);
+        result.put("flushed", flushed);
+        result.put("consistent", mismatches.isEmpty());
+        result.put("mismatches", mismatches);
+        result.put("liveStats", liveStats);
+        result.put("databaseStats", databaseStats);
+        return result;
     }
     
-    private DetectionEvent.EventType getEventType(String className) {
-        return switch (className.toLowerCase()) {
-            case "phone", "mobile" -> DetectionEvent.EventType.PHONE_DETECTED;
-            case "earphone", "earbuds", "headphones" -> DetectionEvent.EventType.EARPHONE_DETECTED;
-            case "smartwatch", "watch" -> DetectionEvent.EventType.SMARTWATCH_DETECTED;
-            case "chit", "paper_slip", "chit_slip" -> DetectionEvent.EventType.CHIT_DETECTED;
-            case "textbook", "book" -> DetectionEvent.EventType.TEXTBOOK_DETECTED;
-            case "notebook", "notes" -> DetectionEvent.EventType.NOTEBOOK_DETECTED;
-            case "electronic_device", "tablet" -> DetectionEvent.EventType.ELECTRONIC_DEVICE_DETECTED;
-            default -> DetectionEvent.EventType.INTERACTION_DETECTED;
-        };
+    private void compare(List<String> mismatches, String field, Integer live, Integer database) {
+        if (!Objects.equals(live, database)) {
+            mismatches.add(field);
+        }
     }
     
-    public List<DetectionEventDTO> getSessionDetections(Long sessionId) {
-        return detectionEventRepository.findBySessionIdOrderByTimestampDesc(sessionId)
-                .stream()
-                .map(DetectionEventDTO::fromEntity)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public RealTimeDetectionDTO.SessionStats calculateSessionStatsFromDatabase(Long sessionId) {
+        return calculateSessionStatsFromDatabase(sessionId,
+                scoreDecay.evaluationMillis(examSessionRepository.findById(sessionId).orElse(null)));
     }
     
-    public List<StudentScoreDTO> getSessionStudentScores(Long sessionId) {
-        return studentScoreRepository.findBySessionIdOrderByTotalScoreDesc(sessionId)
-                .stream()
-                .map(StudentScoreDTO::fromEntity)
-                .collect(Collectors.toList());
+    private RealTimeDetectionDTO.SessionStats calculateSessionStatsFromDatabase(Long sessionId, long nowMillis) {
+        Map<DetectionEvent.EventType, Long> counts = new EnumMap<>(DetectionEvent.EventType.class);
+        for (Object[] row : detectionEventRepository.countBySessionIdGroupByEventType(sessionId)) {
+            counts.put((DetectionEvent.EventType) row[0], (Long) row[1]);
+        }
+        return buildSessionStats(counts, studentScoreRepository.findBySessionId(sessionId),
+                scoringPolicyService.forSession(sessionId), nowMillis);
     }
     
-    public RealTimeDetectionDTO.SessionStats calculateSessionStats(Long sessionId) {
-        List<DetectionEvent> events = detectionEventRepository.findBySessionId(sessionId);
-        List<StudentScore> scores = studentScoreRepository.findBySessionId(sessionId);
-        
-        int phoneCount = 0, earphoneCount = 0, watchCount = 0, chitCount = 0;
+    private RealTimeDetectionDTO.SessionStats buildSessionStats(Map<DetectionEvent.EventType, Long> counts,
+                                                                List<StudentScore> scores,
+                                                                CompiledScoringPolicy policy, long nowMillis) {
+        int total = 0, phoneCount = 0, earphoneCount = 0, watchCount = 0, chitCount = 0;
         int textbookCount = 0, notebookCount = 0, behaviorCount = 0;
         
-        for (DetectionEvent event : events) {
-            switch (event.getEventType()) {
-                case PHONE_DETECTED -> phoneCount++;
-                case EARPHONE_DETECTED -> earphoneCount++;
-                case SMARTWATCH_DETECTED -> watchCount++;
-                case CHIT_DETECTED -> chitCount++;
-                case TEXTBOOK_DETECTED -> textbookCount++;
-                case NOTEBOOK_DETECTED -> notebookCount++;
-                default -> behaviorCount++;
+        for (Map.Entry<DetectionEvent.EventType, Long> entry : counts.entrySet()) {
+            int count = entry.getValue().intValue();
+            total += count;
+            switch (entry.getKey()) {
+                case PHONE_DETECTED -> phoneCount += count;
+                case EARPHONE_DETECTED -> earphoneCount += count;
+                case SMARTWATCH_DETECTED -> watchCount += count;
+                case CHIT_DETECTED -> chitCount += count;
+                case TEXTBOOK_DETECTED -> textbookCount += count;
+                case NOTEBOOK_DETECTED -> notebookCount += count;
+                default -> behaviorCount += count;
             }
         }
         
         double avgScore = scores.stream()
-                .mapToDouble(s -> s.getTotalScore() != null ? s.getTotalScore() : 0)
+                .mapToDouble(s -> scoreDecay.scoreOf(s, nowMillis))
                 .average()
                 .orElse(0);
         
+        double maxScore = scores.stream()
+                .mapToDouble(s -> scoreDecay.scoreOf(s, nowMillis))
+                .max()
+                .orElse(0);
+        
         long suspiciousCount = scores.stream()
-                .filter(s -> s.getAlertLevel() == StudentScore.AlertLevel.SUSPICIOUS ||
-                           s.getAlertLevel() == StudentScore.AlertLevel.CRITICAL)
+                .filter(s -> policy.isSuspicious(scoreDecay.scoreOf(s, nowMillis)))
                 .count();
         
-        String alertLevel = "GREEN";
-        if (avgScore >= 86) alertLevel = "CRITICAL";
-        else if (avgScore >= 61) alertLevel = "RED";
-        else if (avgScore >= 36) alertLevel = "ORANGE";
-        else if (avgScore >= 16) alertLevel = "YELLOW";
-        
         return RealTimeDetectionDTO.SessionStats.builder()
-                .totalDetections(events.size())
+                .totalDetections(total)
                 .phoneCount(phoneCount)
                 .earphoneCount(earphoneCount)
                 .watchCount(watchCount)
@@ -301,9 +747,10 @@ public class DetectionService {
                 .notebookCount(notebookCount)
                 .behaviorCount(behaviorCount)
                 .averageScore(avgScore)
+                .maxScore(maxScore)
                 .suspiciousStudents((int) suspiciousCount)
                 .normalStudents((int) (scores.size() - suspiciousCount))
-                .alertLevel(alertLevel)
+                .alertLevel(policy.sessionAlertLevel(avgScore))
                 .build();
     }
 }
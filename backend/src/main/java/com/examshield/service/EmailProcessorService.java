@@ -7,7 +7,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import javax.mail.*;
 import javax.mail.internet.InternetAddress;
@@ -41,8 +40,9 @@ public class EmailProcessorService {
     
     private static final int MAX_RETRIES = 3;
 
+    // Not transactional: each status update is its own short write, so the single
+    // writer connection is not held while talking to the SMTP server
     @Scheduled(fixedDelay = 10000) // Run every 10 seconds
-    @Transactional
     public void processPendingEmails() {
         List<EmailNotification> pendingEmails = emailRepository.findPendingEmails();
 
@@ -7,6 +7,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -23,13 +24,26 @@ public class ExamSessionService {
     private final StudentScoreRepository studentScoreRepository;
     private final AlertHistoryRepository alertHistoryRepository;
     private final ProcessingJobRepository processingJobRepository;
+    private final StudentScoreAggregator studentScoreAggregator;
+    private final DetectionCooldownTable detectionCooldownTable;
+    private final HeadCountTracker headCountTracker;
+    private final DetectionConfirmationStage detectionConfirmationStage;
+    private final SessionMailboxService sessionMailboxService;
+    private final SessionRegistry sessionRegistry;
+    private final ScoreDecay scoreDecay;
+    private final ScoringPolicyService scoringPolicyService;
+    private final FrameLatencyTracker frameLatencyTracker;
+    private final SessionBroadcastService sessionBroadcastService;
+    private final TransactionTemplate transactionTemplate;
     
     @Transactional
     public ExamSessionDTO createSession(CreateSessionRequest request) {
+        requireScoringPolicy(request.getScoringPolicyId());
         ExamSession session = ExamSession.builder()
                 .name(request.getName())
                 .expectedCount(request.getExpectedCount())
                 .streamUrl(request.getStreamUrl())
+                .scoringPolicyId(request.getScoringPolicyId())
                 .status(ExamSession.SessionStatus.PENDING)
                 .actualCount(0)
                 .totalViolations(0)
@@ -37,6 +51,7 @@ public class ExamSessionService {
                 .build();
         
         session = examSessionRepository.save(session);
+        sessionRegistry.invalidate(session.getId());
         log.info("Created new exam session: {}", session.getId());
         return ExamSessionDTO.fromEntity(session);
     }
@@ -66,6 +81,7 @@ public class ExamSessionService {
         }
         
         session = examSessionRepository.save(session);
+        sessionRegistry.invalidate(id);
         log.info("Started exam session: {}", id);
         return ExamSessionDTO.fromEntity(session);
     }
@@ -77,6 +93,7 @@ public class ExamSessionService {
         
         session.setStatus(ExamSession.SessionStatus.PAUSED);
         session = examSessionRepository.save(session);
+        sessionRegistry.invalidate(id);
         log.info("Paused exam session: {}", id);
         return ExamSessionDTO.fromEntity(session);
     }
@@ -88,12 +105,29 @@ public class ExamSessionService {
         
         session.setStatus(ExamSession.SessionStatus.ACTIVE);
         session = examSessionRepository.save(session);
+        sessionRegistry.invalidate(id);
         log.info("Resumed exam session: {}", id);
         return ExamSessionDTO.fromEntity(session);
     }
     
-    @Transactional
+    /**
+     * Not transactional as a whole: the final score checkpoint commits on its own first,
+     * and the session is only marked completed once its scores are safely written.
+     */
     public ExamSessionDTO endSession(Long id) {
+        try {
+            close(id);
+            sessionBroadcastService.release(id);
+            studentScoreAggregator.release(id);
+            releaseLiveState(id);
+            return transactionTemplate.execute(status -> completeSession(id));
+        } catch (RuntimeException e) {
+            sessionRegistry.invalidate(id);
+            throw e;
+        }
+    }
+    
+    private ExamSessionDTO completeSession(Long id) {
         ExamSession session = examSessionRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Session not found: " + id));
         
@@ -102,8 +136,9 @@ public class ExamSessionService {
         
         List<StudentScore> scores = studentScoreRepository.findBySessionId(id);
         if (!scores.isEmpty()) {
+            long endMillis = scoreDecay.evaluationMillis(session);
             double totalScore = scores.stream()
-                    .mapToDouble(StudentScore::getTotalScore)
+                    .mapToDouble(score -> scoreDecay.scoreOf(score, endMillis))
                     .sum();
             session.setTotalScore(totalScore / scores.size());
             session.setTotalViolations(scores.stream()
@@ -112,6 +147,7 @@ public class ExamSessionService {
         }
         
         session = examSessionRepository.save(session);
+        sessionRegistry.invalidate(id);
         log.info("Ended exam session: {}", id);
         return ExamSessionDTO.fromEntity(session);
     }
@@ -126,11 +162,60 @@ public class ExamSessionService {
         return ExamSessionDTO.fromEntity(session);
     }
     
+    /**
+     * Attaches a scoring policy to the session, or the default one if {@code policyId} is
+     * null. Takes effect with the session's next batch of detections.
+     */
+    @Transactional
+    public ExamSessionDTO updateScoringPolicy(Long id, Long policyId) {
+        requireScoringPolicy(policyId);
+        ExamSession session = examSessionRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Session not found: " + id));
+        
+        session.setScoringPolicyId(policyId);
+        session = examSessionRepository.save(session);
+        sessionRegistry.invalidate(id);
+        log.info("Session {} now uses scoring policy {}", id, policyId);
+        return ExamSessionDTO.fromEntity(session);
+    }
+    
+    private void requireScoringPolicy(Long policyId) {
+        if (policyId != null && !scoringPolicyService.exists(policyId)) {
+            throw new IllegalArgumentException("Scoring policy not found: " + policyId);
+        }
+    }
+    
     public void deleteSession(Long id) {
-        examSessionRepository.deleteById(id);
+        try {
+            close(id);
+            sessionBroadcastService.release(id);
+            studentScoreAggregator.discard(id);
+            releaseLiveState(id);
+            examSessionRepository.deleteById(id);
+        } finally {
+            sessionRegistry.invalidate(id);
+        }
         log.info("Deleted exam session: {}", id);
     }
     
+    /**
+     * Stops the session taking detections, then waits for the batches it already accepted,
+     * so nothing recreates its in-memory state once that is released. The registry reopens
+     * the session when it is invalidated after the lifecycle change, or after a failure.
+     */
+    private void close(Long id) {
+        sessionRegistry.close(id);
+        sessionMailboxService.call(id, () -> null);
+    }
+    
+    private void releaseLiveState(Long id) {
+        detectionCooldownTable.evictSession(id);
+        headCountTracker.evictSession(id);
+        detectionConfirmationStage.evictSession(id);
+        sessionMailboxService.close(id);
+        frameLatencyTracker.evictSession(id);
+    }
+    
     public List<ExamSessionDTO> getActiveSessions() {
         return examSessionRepository.findByStatus(ExamSession.SessionStatus.ACTIVE)
                 .stream()
@@ -0,0 +1,192 @@
+package com.examshield.service;
+
+import com.examshield.dto.FrameLatencyDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-session latency histograms of the ingest pipeline, one per stage:
+ * <ul>
+ *   <li>{@code capture}: detector capture timestamp to server receive (detector and network)</li>
+ *   <li>{@code process}: receive to scoring done (mailbox wait and scoring)</li>
+ *   <li>{@code persist}: scoring done to the frame's last detection committed</li>
+ *   <li>{@code broadcast}: scoring done to the session delta handed to the broker</li>
+ *   <li>{@code end_to_end}: capture (or receive) to the last of the above</li>
+ * </ul>
+ * Values are kept in microseconds in auto-resizing HDR histograms with two significant
+ * digits. Frames slower end to end than {@code slow-frame-ms} are logged with their
+ * breakdown, at most once per {@code slow-frame-log-interval-ms} per session.
+ */
+@Service
+@Slf4j
+public class FrameLatencyTracker {
+
+    public enum Stage {
+        CAPTURE, PROCESS, PERSIST, BROADCAST, END_TO_END
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final boolean enabled;
+    private final long slowFrameMicros;
+    private final long slowLogIntervalNanos;
+    private final SessionLatency all = new SessionLatency(null, null);
+    private final Map<Long, SessionLatency> sessions = new ConcurrentHashMap<>();
+
+    public FrameLatencyTracker(
+            @Value("${app.tracing.enabled:true}") boolean enabled,
+            @Value("${app.tracing.slow-frame-ms:1000}") long slowFrameMs,
+            @Value("${app.tracing.slow-frame-log-interval-ms:5000}") long slowLogIntervalMs) {
+        this.enabled = enabled;
+        this.slowFrameMicros = TimeUnit.MILLISECONDS.toMicros(slowFrameMs);
+        this.slowLogIntervalNanos = TimeUnit.MILLISECONDS.toNanos(slowLogIntervalMs);
+    }
+
+    /**
+     * Starts tracing a frame received now, or returns {@code null} when tracing is off.
+     */
+    public FrameTrace start(Long sessionId, Integer frameNumber, LocalDateTime capturedAt) {
+        if (!enabled) {
+            return null;
+        }
+        long receivedNanos = System.nanoTime();
+        long captureToReceiveMicros = FrameTrace.UNKNOWN;
+        if (capturedAt != null) {
+            long capturedMillis = capturedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            long lagMillis = System.currentTimeMillis() - capturedMillis;
+            // A detector clock ahead of ours gives a negative lag; leave the stage out
+            if (lagMillis >= 0) {
+                captureToReceiveMicros = TimeUnit.MILLISECONDS.toMicros(lagMillis);
+            }
+        }
+        return new FrameTrace(this, sessionId, frameNumber, captureToReceiveMicros, receivedNanos);
+    }
+
+    SessionLatency sessionLatency(Long sessionId) {
+        return sessions.computeIfAbsent(sessionId, id -> new SessionLatency(id, all));
+    }
+
+    public void evictSession(Long sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    public FrameLatencyDTO getSessionLatency(Long sessionId) {
+        SessionLatency latency = sessions.get(sessionId);
+        return latency != null ? latency.toDTO() : new SessionLatency(sessionId, null).toDTO();
+    }
+
+    /**
+     * All sessions combined first, then each tracked session.
+     */
+    public List<FrameLatencyDTO> getLatency() {
+        List<FrameLatencyDTO> result = new ArrayList<>();
+        result.add(all.toDTO());
+        sessions.values().stream()
+                .sorted(Comparator.comparing(latency -> latency.sessionId))
+                .forEach(latency -> result.add(latency.toDTO()));
+        return result;
+    }
+
+    final class SessionLatency {
+
+        private final Long sessionId;
+        private final SessionLatency parent;
+        private final Histogram[] histograms = new Histogram[STAGES.length];
+        private final LongAdder frames = new LongAdder();
+        private final LongAdder slowFrames = new LongAdder();
+        private final AtomicLong lastSlowLogNanos = new AtomicLong(System.nanoTime() - slowLogIntervalNanos);
+        private final AtomicInteger unloggedSlowFrames = new AtomicInteger();
+
+        SessionLatency(Long sessionId, SessionLatency parent) {
+            this.sessionId = sessionId;
+            this.parent = parent;
+            for (Stage stage : STAGES) {
+                histograms[stage.ordinal()] = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+            }
+        }
+
+        void record(Stage stage, long micros) {
+            histograms[stage.ordinal()].recordValue(micros);
+            if (parent != null) {
+                parent.record(stage, micros);
+            }
+        }
+
+        void complete(FrameTrace trace) {
+            long endToEnd = trace.getEndToEndMicros();
+            record(Stage.END_TO_END, endToEnd);
+            frames.increment();
+            all.frames.increment();
+            if (endToEnd >= slowFrameMicros) {
+                slowFrames.increment();
+                all.slowFrames.increment();
+                logSlowFrame(trace, endToEnd);
+            }
+        }
+
+        private void logSlowFrame(FrameTrace trace, long endToEnd) {
+            long now = System.nanoTime();
+            long last = lastSlowLogNanos.get();
+            if (now - last < slowLogIntervalNanos || !lastSlowLogNanos.compareAndSet(last, now)) {
+                unloggedSlowFrames.incrementAndGet();
+                return;
+            }
+            log.warn("Slow frame {} in session {}: {} ms end to end (capture {}, process {}, persist {}, broadcast {}); {} more slow frames since the last report",
+                    trace.getFrameNumber(), trace.getSessionId(), millis(endToEnd),
+                    millisOrDash(trace.getCaptureToReceiveMicros()), millis(trace.getProcessMicros()),
+                    millisOrDash(trace.getPersistMicros()), millisOrDash(trace.getBroadcastMicros()),
+                    unloggedSlowFrames.getAndSet(0));
+        }
+
+        FrameLatencyDTO toDTO() {
+            Map<String, FrameLatencyDTO.StageLatency> stages = new LinkedHashMap<>();
+            for (Stage stage : STAGES) {
+                Histogram histogram = histograms[stage.ordinal()].copy();
+                stages.put(stage.name().toLowerCase(), FrameLatencyDTO.StageLatency.builder()
+                        .count(histogram.getTotalCount())
+                        .meanMs(histogram.getTotalCount() > 0 ? round(histogram.getMean() / 1000.0) : 0.0)
+                        .p50Ms(percentile(histogram, 50))
+                        .p90Ms(percentile(histogram, 90))
+                        .p99Ms(percentile(histogram, 99))
+                        .p999Ms(percentile(histogram, 99.9))
+                        .maxMs(millis(histogram.getTotalCount() > 0 ? histogram.getMaxValue() : 0))
+                        .build());
+            }
+            return FrameLatencyDTO.builder()
+                    .sessionId(sessionId)
+                    .frames(frames.sum())
+                    .slowFrames(slowFrames.sum())
+                    .stages(stages)
+                    .build();
+        }
+    }
+
+    private static double percentile(Histogram histogram, double percentile) {
+        return millis(histogram.getValueAtPercentile(percentile));
+    }
+
+    private static double millis(long micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static String millisOrDash(long micros) {
+        return micros == FrameTrace.UNKNOWN ? "-" : String.valueOf(millis(micros));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
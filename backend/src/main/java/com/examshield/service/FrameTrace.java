@@ -0,0 +1,125 @@
+package com.examshield.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timestamps of one frame on its way through the pipeline. Stages complete on different
+ * threads (request thread, session mailbox, write-behind writer), so the trace counts its
+ * open stages and hands itself back to the tracker once the last one closes.
+ * <p>
+ * Nothing is recorded until the frame is processed, so a frame that never gets there
+ * (unknown session, refused under overload) leaves no trace in the tracker.
+ */
+public final class FrameTrace {
+
+    public static final long UNKNOWN = -1;
+
+    private final FrameLatencyTracker tracker;
+    private final Long sessionId;
+    private final Integer frameNumber;
+    private final long captureToReceiveMicros;
+    private final long receivedNanos;
+    private final AtomicInteger openStages;
+    private final AtomicInteger unpersisted = new AtomicInteger();
+
+    private volatile FrameLatencyTracker.SessionLatency latency;
+    private volatile long processedNanos;
+    private volatile long persistedNanos;
+    private volatile long broadcastNanos;
+    private volatile boolean persistFailed;
+
+    FrameTrace(FrameLatencyTracker tracker, Long sessionId, Integer frameNumber,
+               long captureToReceiveMicros, long receivedNanos) {
+        this.tracker = tracker;
+        this.sessionId = sessionId;
+        this.frameNumber = frameNumber;
+        this.captureToReceiveMicros = captureToReceiveMicros;
+        this.receivedNanos = receivedNanos;
+        this.openStages = new AtomicInteger(2);
+    }
+
+    /**
+     * Scoring is done; {@code detections} of this frame's detections are about to be
+     * handed to persistence.
+     */
+    void processed(int detections) {
+        processedNanos = System.nanoTime();
+        latency = tracker.sessionLatency(sessionId);
+        if (captureToReceiveMicros != UNKNOWN) {
+            latency.record(FrameLatencyTracker.Stage.CAPTURE, captureToReceiveMicros);
+        }
+        latency.record(FrameLatencyTracker.Stage.PROCESS, micros(receivedNanos, processedNanos));
+        if (detections > 0) {
+            unpersisted.set(detections);
+            openStages.incrementAndGet();
+        }
+        closeStage();
+    }
+
+    void detectionPersisted(boolean success) {
+        if (!success) {
+            persistFailed = true;
+        }
+        if (unpersisted.decrementAndGet() == 0) {
+            persistedNanos = System.nanoTime();
+            if (!persistFailed) {
+                latency.record(FrameLatencyTracker.Stage.PERSIST, micros(processedNanos, persistedNanos));
+            }
+            closeStage();
+        }
+    }
+
+    /**
+     * The session delta covering this frame went out, or nothing changed and no delta
+     * was {@code published}.
+     */
+    void broadcast(boolean published) {
+        if (published) {
+            broadcastNanos = System.nanoTime();
+            latency.record(FrameLatencyTracker.Stage.BROADCAST, micros(processedNanos, broadcastNanos));
+        }
+        closeStage();
+    }
+
+    private void closeStage() {
+        if (openStages.decrementAndGet() == 0) {
+            latency.complete(this);
+        }
+    }
+
+    Long getSessionId() {
+        return sessionId;
+    }
+
+    Integer getFrameNumber() {
+        return frameNumber;
+    }
+
+    long getCaptureToReceiveMicros() {
+        return captureToReceiveMicros;
+    }
+
+    long getProcessMicros() {
+        return micros(receivedNanos, processedNanos);
+    }
+
+    long getPersistMicros() {
+        return persistedNanos != 0 && !persistFailed ? micros(processedNanos, persistedNanos) : UNKNOWN;
+    }
+
+    long getBroadcastMicros() {
+        return broadcastNanos != 0 ? micros(processedNanos, broadcastNanos) : UNKNOWN;
+    }
+
+    /**
+     * Capture (or receive, when the capture time is unknown) to the last closed stage.
+     */
+    long getEndToEndMicros() {
+        long end = Math.max(processedNanos, Math.max(persistedNanos, broadcastNanos));
+        return Math.max(captureToReceiveMicros, 0) + micros(receivedNanos, end);
+    }
+
+    private static long micros(long fromNanos, long toNanos) {
+        return Math.max(0, (toNanos - fromNanos) / 1000);
+    }
+}
@@ -0,0 +1,106 @@
+package com.examshield.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Smooths per-frame head counts of each live session with a sliding-window median over
+ * the last {@code app.detection.head-count.window-frames} frames, and remembers what has
+ * already been reported so that the database is only written, and mismatch events only
+ * raised, when the smoothed state changes.
+ * <p>
+ * A {@link Window} belongs to its session's mailbox and is not thread-safe.
+ */
+@Component
+public class HeadCountTracker {
+
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+    private final int windowFrames;
+    private final SessionRegistry sessionRegistry;
+
+    public HeadCountTracker(@Value("${app.detection.head-count.window-frames:9}") int windowFrames,
+                            SessionRegistry sessionRegistry) {
+        this.windowFrames = Math.max(1, windowFrames);
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    Window getWindow(Long sessionId) {
+        Window window = windows.get(sessionId);
+        if (window != null) {
+            return window;
+        }
+        sessionRegistry.checkAccepting(sessionId);
+        return windows.computeIfAbsent(sessionId, id -> new Window(windowFrames));
+    }
+
+    public void evictSession(Long sessionId) {
+        windows.remove(sessionId);
+    }
+
+    public int size() {
+        return windows.size();
+    }
+
+    static class Window {
+
+        private final int[] samples;
+        private final int[] scratch;
+        private int next;
+        private int count;
+
+        private int reportedCount = -1;
+        private int reportedExtra;
+        private boolean reportedMissing;
+
+        Window(int size) {
+            this.samples = new int[size];
+            this.scratch = new int[size];
+        }
+
+        /**
+         * Adds a frame's head count and returns the median of the window.
+         */
+        int add(int headCount) {
+            samples[next] = headCount;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) {
+                count++;
+            }
+
+            System.arraycopy(samples, 0, scratch, 0, count);
+            Arrays.sort(scratch, 0, count);
+            return scratch[count / 2];
+        }
+
+        /**
+         * Returns true if the smoothed count differs from the last one reported.
+         */
+        boolean changeReportedCount(int smoothed) {
+            if (smoothed == reportedCount) {
+                return false;
+            }
+            reportedCount = smoothed;
+            return true;
+        }
+
+        int getReportedExtra() {
+            return reportedExtra;
+        }
+
+        void setReportedExtra(int reportedExtra) {
+            this.reportedExtra = reportedExtra;
+        }
+
+        boolean isReportedMissing() {
+            return reportedMissing;
+        }
+
+        void setReportedMissing(boolean reportedMissing) {
+            this.reportedMissing = reportedMissing;
+        }
+    }
+}
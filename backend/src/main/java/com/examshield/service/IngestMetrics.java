@@ -0,0 +1,103 @@
+package com.examshield.service;
+
+import com.examshield.dto.FrameIngestResultDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingest rate, outcome and latency meters, one set per ingest endpoint. All meters are
+ * registered up front so recording on the hot path is a couple of array lookups.
+ */
+@Component
+public class IngestMetrics {
+
+    public enum Endpoint {
+        HTTP_PROCESS("/api/detect/process"),
+        HTTP_FRAMES("/api/detect/frames"),
+        STOMP("/app/detections"),
+        BINARY("/ingest/binary");
+
+        private final String tag;
+
+        Endpoint(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final Endpoint[] ENDPOINTS = Endpoint.values();
+    private static final FrameIngestResultDTO.Status[] STATUSES = FrameIngestResultDTO.Status.values();
+
+    private final Timer[] latency = new Timer[ENDPOINTS.length];
+    private final Counter[] frames = new Counter[ENDPOINTS.length];
+    private final Counter[] overloaded = new Counter[ENDPOINTS.length];
+    private final Counter[] errors = new Counter[ENDPOINTS.length];
+    private final Counter[][] detections = new Counter[ENDPOINTS.length][STATUSES.length];
+
+    public IngestMetrics(MeterRegistry registry) {
+        for (Endpoint endpoint : ENDPOINTS) {
+            int i = endpoint.ordinal();
+            latency[i] = Timer.builder("examshield.ingest.latency")
+                    .description("Time to process one ingest request")
+                    .tag("endpoint", endpoint.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+            frames[i] = Counter.builder("examshield.ingest.frames")
+                    .description("Frames received")
+                    .tag("endpoint", endpoint.tag)
+                    .register(registry);
+            overloaded[i] = Counter.builder("examshield.ingest.overloaded")
+                    .description("Requests refused because the ingest queues were full")
+                    .tag("endpoint", endpoint.tag)
+                    .register(registry);
+            errors[i] = Counter.builder("examshield.ingest.errors")
+                    .description("Requests that failed with an error")
+                    .tag("endpoint", endpoint.tag)
+                    .register(registry);
+            for (FrameIngestResultDTO.Status status : STATUSES) {
+                detections[i][status.ordinal()] = Counter.builder("examshield.ingest.detections")
+                        .description("Detections received, by outcome")
+                        .tag("endpoint", endpoint.tag)
+                        .tag("outcome", status.name().toLowerCase())
+                        .register(registry);
+            }
+        }
+    }
+
+    public void recorded(Endpoint endpoint, long startNanos, FrameIngestResultDTO result) {
+        int i = endpoint.ordinal();
+        latency[i].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        frames[i].increment(result.getFrames());
+        Counter[] outcomes = detections[i];
+        increment(outcomes[FrameIngestResultDTO.Status.ACCEPTED.ordinal()], result.getAccepted());
+        increment(outcomes[FrameIngestResultDTO.Status.PENDING.ordinal()], result.getPending());
+        increment(outcomes[FrameIngestResultDTO.Status.COOLED_DOWN.ordinal()], result.getCooledDown());
+        increment(outcomes[FrameIngestResultDTO.Status.REJECTED.ordinal()], result.getRejected());
+        increment(outcomes[FrameIngestResultDTO.Status.SHED.ordinal()], result.getShed());
+    }
+
+    public void overloaded(Endpoint endpoint, long startNanos, int frameCount) {
+        int i = endpoint.ordinal();
+        latency[i].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        frames[i].increment(frameCount);
+        overloaded[i].increment();
+    }
+
+    public void failed(Endpoint endpoint, long startNanos) {
+        int i = endpoint.ordinal();
+        latency[i].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        errors[i].increment();
+    }
+
+    private static void increment(Counter counter, Integer amount) {
+        if (amount != null && amount > 0) {
+            counter.increment(amount);
+        }
+    }
+}
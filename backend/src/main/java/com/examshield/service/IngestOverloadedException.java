@@ -0,0 +1,20 @@
+package com.examshield.service;
+
+/**
+ * Thrown when detection ingest is saturated and a request is refused as a whole.
+ */
+public class IngestOverloadedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMs;
+
+    public IngestOverloadedException(String message, long retryAfterMs) {
+        super(message);
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+}
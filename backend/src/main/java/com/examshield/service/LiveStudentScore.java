@@ -0,0 +1,194 @@
+package com.examshield.service;
+
+import com.examshield.dto.StudentScoreDTO;
+import com.examshield.model.DetectionEvent;
+import com.examshield.model.StudentScore;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Mutable, primitive-backed score of one tracked person in a live session.
+ * Instances are owned by a {@link SessionScoreboard} and only touched from its session's mailbox.
+ * <p>
+ * {@code totalScore} is the score as of {@code scoreUpdatedMillis}; the current value is
+ * decayed from it on demand (see {@link ScoreDecay}).
+ */
+public class LiveStudentScore {
+
+    private final String trackingId;
+    private Long id;
+
+    private double totalScore;
+    private long scoreUpdatedMillis;
+    private double rank;
+    private int violationCount;
+
+    private int phoneCount;
+    private int earphoneCount;
+    private int watchCount;
+    private int chitCount;
+    private int textbookCount;
+    private int notebookCount;
+    private int behaviorCount;
+
+    private long firstSeenMillis;
+    private long lastSeenMillis;
+    private boolean dirty;
+
+    LiveStudentScore(String trackingId, long nowMillis) {
+        this.trackingId = trackingId;
+        this.firstSeenMillis = nowMillis;
+        this.lastSeenMillis = nowMillis;
+        this.scoreUpdatedMillis = nowMillis;
+    }
+
+    static LiveStudentScore fromEntity(StudentScore score) {
+        LiveStudentScore live = new LiveStudentScore(score.getTrackingId(), toMillis(score.getFirstSeen()));
+        live.id = score.getId();
+        live.totalScore = valueOf(score.getTotalScore());
+        live.violationCount = valueOf(score.getViolationCount());
+        live.phoneCount = valueOf(score.getPhoneCount());
+        live.earphoneCount = valueOf(score.getEarphoneCount());
+        live.watchCount = valueOf(score.getWatchCount());
+        live.chitCount = valueOf(score.getChitCount());
+        live.textbookCount = valueOf(score.getTextbookCount());
+        live.notebookCount = valueOf(score.getNotebookCount());
+        live.behaviorCount = valueOf(score.getBehaviorCount());
+        live.lastSeenMillis = toMillis(score.getLastSeen());
+        live.scoreUpdatedMillis = score.getScoreUpdatedAt() != null ? toMillis(score.getScoreUpdatedAt()) : live.lastSeenMillis;
+        return live;
+    }
+
+    void record(DetectionEvent.EventType eventType, double scoreDelta, long nowMillis, ScoreDecay decay) {
+        totalScore = decay.decay(totalScore, scoreUpdatedMillis, nowMillis) + scoreDelta;
+        scoreUpdatedMillis = nowMillis;
+        violationCount++;
+        lastSeenMillis = nowMillis;
+
+        switch (eventType) {
+            case PHONE_DETECTED -> phoneCount++;
+            case EARPHONE_DETECTED -> earphoneCount++;
+            case SMARTWATCH_DETECTED -> watchCount++;
+            case CHIT_DETECTED -> chitCount++;
+            case TEXTBOOK_DETECTED -> textbookCount++;
+            case NOTEBOOK_DETECTED -> notebookCount++;
+            default -> behaviorCount++;
+        }
+
+        dirty = true;
+    }
+
+    double scoreAt(long nowMillis, ScoreDecay decay) {
+        return decay.decay(totalScore, scoreUpdatedMillis, nowMillis);
+    }
+
+    /**
+     * Sets the ranking key: the score extrapolated back to {@code epochMillis}. All scores
+     * decay at the same rate, so ordering by this key orders by current score at any
+     * later instant without re-sorting.
+     */
+    void updateRank(long epochMillis, ScoreDecay decay) {
+        rank = totalScore + decay.getPointsPerMilli() * (scoreUpdatedMillis - epochMillis);
+    }
+
+    double getRank() {
+        return rank;
+    }
+
+    void copyTo(StudentScore score, long nowMillis, ScoreDecay decay, CompiledScoringPolicy policy) {
+        double currentScore = scoreAt(nowMillis, decay);
+        score.setTrackingId(trackingId);
+        score.setTotalScore(currentScore);
+        score.setScoreUpdatedAt(toDateTime(nowMillis));
+        score.setViolationCount(violationCount);
+        score.setAlertLevel(policy.studentAlertLevel(currentScore));
+        score.setPhoneCount(phoneCount);
+        score.setEarphoneCount(earphoneCount);
+        score.setWatchCount(watchCount);
+        score.setChitCount(chitCount);
+        score.setTextbookCount(textbookCount);
+        score.setNotebookCount(notebookCount);
+        score.setBehaviorCount(behaviorCount);
+        score.setFirstSeen(toDateTime(firstSeenMillis));
+        score.setLastSeen(toDateTime(lastSeenMillis));
+    }
+
+    StudentScoreDTO toDTO(Long sessionId, double currentScore, CompiledScoringPolicy policy) {
+        return StudentScoreDTO.builder()
+                .id(id)
+                .sessionId(sessionId)
+                .trackingId(trackingId)
+                .totalScore(currentScore)
+                .violationCount(violationCount)
+                .alertLevel(policy.studentAlertLevel(currentScore))
+                .phoneCount(phoneCount)
+                .earphoneCount(earphoneCount)
+                .watchCount(watchCount)
+                .chitCount(chitCount)
+                .textbookCount(textbookCount)
+                .notebookCount(notebookCount)
+                .behaviorCount(behaviorCount)
+                .firstSeen(toDateTime(firstSeenMillis))
+                .lastSeen(toDateTime(lastSeenMillis))
+                .build();
+    }
+
+    LiveStudentScore copy() {
+        LiveStudentScore copy = new LiveStudentScore(trackingId, firstSeenMillis);
+        copy.id = id;
+        copy.totalScore = totalScore;
+        copy.scoreUpdatedMillis = scoreUpdatedMillis;
+        copy.rank = rank;
+        copy.violationCount = violationCount;
+        copy.phoneCount = phoneCount;
+        copy.earphoneCount = earphoneCount;
+        copy.watchCount = watchCount;
+        copy.chitCount = chitCount;
+        copy.textbookCount = textbookCount;
+        copy.notebookCount = notebookCount;
+        copy.behaviorCount = behaviorCount;
+        copy.lastSeenMillis = lastSeenMillis;
+        return copy;
+    }
+
+    String getTrackingId() {
+        return trackingId;
+    }
+
+    Long getId() {
+        return id;
+    }
+
+    void setId(Long id) {
+        this.id = id;
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    void setDirty(boolean dirty) {
+        this.dirty = dirty;
+    }
+
+    private static int valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static double valueOf(Double value) {
+        return value != null ? value : 0.0;
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return System.currentTimeMillis();
+        }
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
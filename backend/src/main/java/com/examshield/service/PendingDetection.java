@@ -0,0 +1,74 @@
+package com.examshield.service;
+
+import com.examshield.dto.DetectionEventDTO;
+import com.examshield.model.AlertHistory;
+import com.examshield.model.DetectionEvent;
+import com.examshield.model.ExamSession;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Builder
+@AllArgsConstructor
+public class PendingDetection {
+
+    private final Long sessionId;
+    private final String personId;
+    private final DetectionEvent.EventType eventType;
+    private final String description;
+    private final Double confidence;
+    private final int points;
+    private final Integer x;
+    private final Integer y;
+    private final Integer width;
+    private final Integer height;
+    private final LocalDateTime timestamp;
+    private final AlertHistory.AlertLevel alertLevel;
+    @Setter
+    private FrameTrace trace;
+
+    public DetectionEvent toEntity(ExamSession session) {
+        return DetectionEvent.builder()
+                .session(session)
+                .timestamp(timestamp)
+                .personId(personId)
+                .eventType(eventType)
+                .description(description)
+                .confidence(confidence)
+                .points(points)
+                .boundingBoxX(x)
+                .boundingBoxY(y)
+                .boundingBoxWidth(width)
+                .boundingBoxHeight(height)
+                .isResolved(false)
+                .build();
+    }
+
+    public DetectionEventDTO toDTO() {
+        DetectionEventDTO.BoundingBox box = null;
+        if (x != null) {
+            box = DetectionEventDTO.BoundingBox.builder()
+                    .x(x)
+                    .y(y)
+                    .width(width)
+                    .height(height)
+                    .build();
+        }
+
+        return DetectionEventDTO.builder()
+                .sessionId(sessionId)
+                .timestamp(timestamp)
+                .personId(personId)
+                .eventType(eventType)
+                .description(description)
+                .confidence(confidence)
+                .points(points)
+                .boundingBox(box)
+                .isResolved(false)
+                .build();
+    }
+}
@@ -0,0 +1,241 @@
+package com.examshield.service;
+
+import com.examshield.config.SubscriberFanout;
+import com.examshield.model.DetectionEvent;
+import com.sun.management.OperatingSystemMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the detection pipeline's internal counters as Micrometer meters. Per-session
+ * queue depths are refreshed on a schedule and only the deepest {@code session-tag-limit}
+ * non-empty sessions get their own series; the rest are summed under {@code session="other"}.
+ * The email backlog needs a database count, so it is refreshed on the same schedule
+ * rather than on every scrape.
+ */
+@Component
+@Slf4j
+public class PipelineMetrics implements MeterBinder {
+
+    private static final String OTHER = "other";
+
+    private final DetectionCooldownTable cooldownTable;
+    private final DetectionAdmissionService detectionAdmissionService;
+    private final DetectionPersistenceService detectionPersistenceService;
+    private final SessionMailboxService sessionMailboxService;
+    private final EmailProcessorService emailProcessorService;
+    private final SessionBroadcastService sessionBroadcastService;
+    private final SubscriberFanout subscriberFanout;
+    private final SessionEventStreams sessionEventStreams;
+    private final int sessionTagLimit;
+
+    private MultiGauge mailboxDepth;
+    private MultiGauge admissionDepth;
+    private MultiGauge subscriberLag;
+    private volatile long emailPending;
+
+    public PipelineMetrics(
+            DetectionCooldownTable cooldownTable,
+            DetectionAdmissionService detectionAdmissionService,
+            DetectionPersistenceService detectionPersistenceService,
+            SessionMailboxService sessionMailboxService,
+            EmailProcessorService emailProcessorService,
+            SessionBroadcastService sessionBroadcastService,
+            SubscriberFanout subscriberFanout,
+            SessionEventStreams sessionEventStreams,
+            @Value("${app.metrics.session-tag-limit:20}") int sessionTagLimit) {
+        this.cooldownTable = cooldownTable;
+        this.detectionAdmissionService = detectionAdmissionService;
+        this.detectionPersistenceService = detectionPersistenceService;
+        this.sessionMailboxService = sessionMailboxService;
+        this.emailProcessorService = emailProcessorService;
+        this.sessionBroadcastService = sessionBroadcastService;
+        this.subscriberFanout = subscriberFanout;
+        this.sessionEventStreams = sessionEventStreams;
+        this.sessionTagLimit = sessionTagLimit;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("examshield.cooldown.decisions", cooldownTable, DetectionCooldownTable::getAllowedCount)
+                .description("Cooldown checks, by result")
+                .tag("result", "allowed")
+                .register(registry);
+        FunctionCounter.builder("examshield.cooldown.decisions", cooldownTable, DetectionCooldownTable::getSuppressedCount)
+                .description("Cooldown checks, by result")
+                .tag("result", "suppressed")
+                .register(registry);
+        Gauge.builder("examshield.cooldown.entries", cooldownTable, DetectionCooldownTable::size)
+                .description("Live cooldown table entries")
+                .register(registry);
+
+        Gauge.builder("examshield.admission.queued", detectionAdmissionService, DetectionAdmissionService::getGlobalQueued)
+                .description("Detections admitted and not yet applied, across all sessions")
+                .register(registry);
+        for (DetectionEvent.EventType eventType : DetectionEvent.EventType.values()) {
+            FunctionCounter.builder("examshield.admission.shed", detectionAdmissionService, s -> s.getShedCount(eventType))
+                    .description("Detections shed under load, by event type")
+                    .tag("type", eventType.name())
+                    .register(registry);
+        }
+        FunctionCounter.builder("examshield.admission.rejected.requests", detectionAdmissionService,
+                        DetectionAdmissionService::getRejectedRequestCount)
+                .description("Requests refused because the ingest queues were full")
+                .register(registry);
+
+        Gauge.builder("examshield.mailbox.depth", sessionMailboxService, SessionMailboxService::getTotalQueueDepth)
+                .description("Tasks queued in session mailboxes")
+                .register(registry);
+        mailboxDepth = MultiGauge.builder("examshield.session.mailbox.depth")
+                .description("Tasks queued in a session's mailbox")
+                .register(registry);
+        admissionDepth = MultiGauge.builder("examshield.session.admission.queued")
+                .description("Detections admitted and not yet applied for a session")
+                .register(registry);
+
+        Gauge.builder("examshield.persistence.queue.depth", detectionPersistenceService, DetectionPersistenceService::getQueueDepth)
+                .description("Detections waiting in the write-behind queue")
+                .register(registry);
+        Gauge.builder("examshield.persistence.queue.capacity", detectionPersistenceService, DetectionPersistenceService::getQueueCapacity)
+                .register(registry);
+        FunctionCounter.builder("examshield.persistence.detections", detectionPersistenceService,
+                        DetectionPersistenceService::getPersistedCount)
+                .tag("result", "persisted")
+                .register(registry);
+        FunctionCounter.builder("examshield.persistence.detections", detectionPersistenceService,
+                        DetectionPersistenceService::getFailedCount)
+                .tag("result", "failed")
+                .register(registry);
+        FunctionCounter.builder("examshield.persistence.synchronous.fallbacks", detectionPersistenceService,
+                        DetectionPersistenceService::getSynchronousFallbackCount)
+                .description("Detections written synchronously because the write-behind queue was full")
+                .register(registry);
+
+        Gauge.builder("examshield.broadcast.interval", sessionBroadcastService, SessionBroadcastService::getIntervalMs)
+                .description("Current per-session delta interval, raised while subscribers lag")
+                .baseUnit("milliseconds")
+                .register(registry);
+
+        Gauge.builder("examshield.websocket.subscribers", subscriberFanout, SubscriberFanout::getSubscriberCount)
+                .description("Connected STOMP clients")
+                .register(registry);
+        Gauge.builder("examshield.websocket.subscriber.queued", subscriberFanout, SubscriberFanout::getQueuedMessages)
+                .description("Messages buffered for STOMP clients, across all clients")
+                .register(registry);
+        FunctionCounter.builder("examshield.websocket.subscriber.messages", subscriberFanout, SubscriberFanout::getDeliveredCount)
+                .tag("result", "delivered")
+                .register(registry);
+        FunctionCounter.builder("examshield.websocket.subscriber.messages", subscriberFanout, SubscriberFanout::getDroppedCount)
+                .tag("result", "dropped")
+                .register(registry);
+        FunctionCounter.builder("examshield.websocket.subscriber.messages", subscriberFanout, SubscriberFanout::getConflatedCount)
+                .tag("result", "conflated")
+                .register(registry);
+        FunctionCounter.builder("examshield.websocket.subscriber.disconnects", subscriberFanout, SubscriberFanout::getDisconnectedCount)
+                .description("Clients disconnected for falling behind")
+                .register(registry);
+        Gauge.builder("examshield.sse.streams", sessionEventStreams, SessionEventStreams::getStreamCount)
+                .description("Open Server-Sent Events streams, overview streams included")
+                .register(registry);
+        Gauge.builder("examshield.sse.overview.streams", sessionEventStreams, SessionEventStreams::getOverviewStreamCount)
+                .register(registry);
+        FunctionCounter.builder("examshield.sse.events", sessionEventStreams, SessionEventStreams::getSentCount)
+                .description("Events and heartbeats written to Server-Sent Events streams")
+                .register(registry);
+        FunctionCounter.builder("examshield.sse.overflows", sessionEventStreams, SessionEventStreams::getOverflowCount)
+                .description("Streams closed because their client fell a full buffer behind")
+                .register(registry);
+        subscriberLag = MultiGauge.builder("examshield.websocket.subscriber.lag")
+                .description("Age of the oldest message buffered for a client")
+                .baseUnit("milliseconds")
+                .register(registry);
+
+        // Cumulative, unlike process.cpu.usage, so a benchmark can take the difference over a run
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof OperatingSystemMXBean os) {
+            FunctionCounter.builder("process.cpu.time", os, bean -> bean.getProcessCpuTime() / 1e9)
+                    .description("CPU time used by the JVM process")
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+
+        Gauge.builder("examshield.email.pending", this, metrics -> metrics.emailPending)
+                .description("Email notifications waiting to be sent")
+                .register(registry);
+
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${app.metrics.refresh-ms:5000}")
+    public void refresh() {
+        if (mailboxDepth == null) {
+            return;
+        }
+        mailboxDepth.register(topSessions(sessionMailboxService.getQueueDepths()), true);
+        admissionDepth.register(topSessions(detectionAdmissionService.getSessionQueued()), true);
+        subscriberLag.register(topSubscribers(subscriberFanout.getSubscriberLag()), true);
+        try {
+            emailPending = emailProcessorService.getPendingCount();
+        } catch (Exception e) {
+            log.debug("Could not count pending emails: {}", e.getMessage());
+        }
+    }
+
+    private List<MultiGauge.Row<?>> topSessions(Map<Long, Integer> depths) {
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(depths.entrySet());
+        entries.sort(Map.Entry.<Long, Integer>comparingByValue(Comparator.reverseOrder()));
+
+        List<MultiGauge.Row<?>> rows = new ArrayList<>();
+        long other = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            Map.Entry<Long, Integer> entry = entries.get(i);
+            if (entry.getValue() == 0) {
+                break;
+            }
+            if (i < sessionTagLimit) {
+                rows.add(MultiGauge.Row.of(Tags.of("session", String.valueOf(entry.getKey())), entry.getValue()));
+            } else {
+                other += entry.getValue();
+            }
+        }
+        rows.add(MultiGauge.Row.of(Tags.of("session", OTHER), other));
+        return rows;
+    }
+
+    /**
+     * Like {@link #topSessions}, but the remaining subscribers report their worst lag.
+     */
+    private List<MultiGauge.Row<?>> topSubscribers(Map<String, Long> lag) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(lag.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+
+        List<MultiGauge.Row<?>> rows = new ArrayList<>();
+        long other = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            Map.Entry<String, Long> entry = entries.get(i);
+            if (entry.getValue() == 0) {
+                break;
+            }
+            if (i < sessionTagLimit) {
+                rows.add(MultiGauge.Row.of(Tags.of("subscriber", entry.getKey()), entry.getValue()));
+            } else {
+                other = Math.max(other, entry.getValue());
+            }
+        }
+        rows.add(MultiGauge.Row.of(Tags.of("subscriber", OTHER), other));
+        return rows;
+    }
+}
@@ -6,6 +6,7 @@ import com.examshield.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -14,12 +15,15 @@ import java.util.stream.Collectors;
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Transactional(readOnly = true)
 public class ReportService {
     
     private final ExamSessionRepository examSessionRepository;
     private final DetectionEventRepository detectionEventRepository;
     private final StudentScoreRepository studentScoreRepository;
     private final AlertHistoryRepository alertHistoryRepository;
+    private final ScoreDecay scoreDecay;
+    private final ScoringPolicyService scoringPolicyService;
     
     public SessionReportDTO generateReport(Long sessionId) {
         ExamSession session = examSessionRepository.findById(sessionId)
@@ -35,27 +39,30 @@ public class ReportService {
             violationBreakdown.merge(eventName, 1, Integer::sum);
         }
         
-        double avgScore = scores.stream()
-                .mapToDouble(s -> s.getTotalScore() != null ? s.getTotalScore() : 0)
+        long nowMillis = scoreDecay.evaluationMillis(session);
+        CompiledScoringPolicy policy = scoringPolicyService.resolve(session.getScoringPolicyId());
+        List<StudentScoreDTO> rankedScores = scores.stream()
+                .map(s -> scoreDecay.toDTO(s, nowMillis, policy))
+                .sorted(Comparator.comparing(StudentScoreDTO::getTotalScore).reversed())
+                .collect(Collectors.toList());
+        
+        double avgScore = rankedScores.stream()
+                .mapToDouble(StudentScoreDTO::getTotalScore)
                 .average()
                 .orElse(0);
         
-        double maxScore = scores.stream()
-                .mapToDouble(s -> s.getTotalScore() != null ? s.getTotalScore() : 0)
+        double maxScore = rankedScores.stream()
+                .mapToDouble(StudentScoreDTO::getTotalScore)
                 .max()
                 .orElse(0);
         
-        long suspiciousCount = scores.stream()
+        long suspiciousCount = rankedScores.stream()
                 .filter(s -> s.getAlertLevel() == StudentScore.AlertLevel.SUSPICIOUS ||
                            s.getAlertLevel() == StudentScore.AlertLevel.CRITICAL)
                 .count();
         
-        List<StudentScoreDTO> topStudents = scores.stream()
-                .sorted((a, b) -> Double.compare(
-                        b.getTotalScore() != null ? b.getTotalScore() : 0,
-                        a.getTotalScore() != null ? a.getTotalScore() : 0))
+        List<StudentScoreDTO> topStudents = rankedScores.stream()
                 .limit(10)
-                .map(StudentScoreDTO::fromEntity)
                 .collect(Collectors.toList());
         
         List<DetectionEventDTO> recentDetections = events.stream()
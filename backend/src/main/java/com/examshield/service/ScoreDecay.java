@@ -0,0 +1,58 @@
+package com.examshield.service;
+
+import com.examshield.dto.StudentScoreDTO;
+import com.examshield.model.ExamSession;
+import com.examshield.model.StudentScore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Linear score decay of {@code app.detection.decay-points-per-minute}, floored at zero.
+ * Nothing is swept: a score is stored with the instant it was last updated and decayed
+ * when it is read or updated. Completed sessions are evaluated at their end time, so
+ * reports do not keep decaying after the exam.
+ */
+@Component
+public class ScoreDecay {
+
+    private final double pointsPerMilli;
+
+    public ScoreDecay(@Value("${app.detection.decay-points-per-minute:2}") double decayPointsPerMinute) {
+        this.pointsPerMilli = Math.max(0, decayPointsPerMinute) / 60_000.0;
+    }
+
+    public double getPointsPerMilli() {
+        return pointsPerMilli;
+    }
+
+    public double decay(double score, long updatedMillis, long nowMillis) {
+        return Math.max(0, score - pointsPerMilli * Math.max(0, nowMillis - updatedMillis));
+    }
+
+    public long evaluationMillis(ExamSession session) {
+        if (session != null && session.getStatus() == ExamSession.SessionStatus.COMPLETED && session.getEndTime() != null) {
+            return toMillis(session.getEndTime());
+        }
+        return System.currentTimeMillis();
+    }
+
+    public double scoreOf(StudentScore score, long nowMillis) {
+        LocalDateTime updatedAt = score.getScoreUpdatedAt() != null ? score.getScoreUpdatedAt() : score.getLastSeen();
+        double totalScore = score.getTotalScore() != null ? score.getTotalScore() : 0;
+        return updatedAt != null ? decay(totalScore, toMillis(updatedAt), nowMillis) : totalScore;
+    }
+
+    public StudentScoreDTO toDTO(StudentScore score, long nowMillis, CompiledScoringPolicy policy) {
+        StudentScoreDTO dto = StudentScoreDTO.fromEntity(score);
+        dto.setTotalScore(scoreOf(score, nowMillis));
+        dto.setAlertLevel(policy.studentAlertLevel(dto.getTotalScore()));
+        return dto;
+    }
+
+    static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,189 @@
+package com.examshield.service;
+
+import com.examshield.dto.ScoringPolicyDTO;
+import com.examshield.model.ScoringPolicy;
+import com.examshield.repository.ScoringPolicyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores scoring policies as JSON definitions and keeps each one compiled in memory.
+ * Creating or updating a policy compiles it first and then replaces the compiled
+ * instance in one write, so ingest running concurrently sees either the old or the new
+ * policy, never a mix. Sessions without a policy use {@code app.scoring.default-policy},
+ * or the built-in policy if that is not set.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ScoringPolicyService {
+
+    private final ScoringPolicyRepository scoringPolicyRepository;
+    private final SessionRegistry sessionRegistry;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Long, CompiledScoringPolicy> policies = new ConcurrentHashMap<>();
+    private volatile CompiledScoringPolicy defaultPolicy = CompiledScoringPolicy.BUILT_IN;
+
+    @Value("${app.scoring.default-policy:}")
+    private String defaultPolicyName;
+
+    @PostConstruct
+    public void reload() {
+        Set<Long> loaded = new HashSet<>();
+        for (ScoringPolicy policy : scoringPolicyRepository.findAll()) {
+            try {
+                policies.put(policy.getId(), compile(policy));
+                loaded.add(policy.getId());
+            } catch (RuntimeException e) {
+                log.error("Skipping scoring policy {}: {}", policy.getName(), e.getMessage());
+            }
+        }
+        policies.keySet().retainAll(loaded);
+        updateDefaultPolicy();
+        log.info("Loaded {} scoring policies, default is {}", policies.size(), defaultPolicy.getName());
+    }
+
+    /**
+     * Returns the policy attached to the session, or the default one.
+     */
+    public CompiledScoringPolicy forSession(Long sessionId) {
+        SessionRegistry.Entry session = sessionRegistry.find(sessionId);
+        return resolve(session != null ? session.scoringPolicyId() : null);
+    }
+
+    public CompiledScoringPolicy resolve(Long policyId) {
+        if (policyId == null) {
+            return defaultPolicy;
+        }
+        CompiledScoringPolicy policy = policies.get(policyId);
+        return policy != null ? policy : defaultPolicy;
+    }
+
+    public boolean exists(Long policyId) {
+        return policies.containsKey(policyId);
+    }
+
+    public List<ScoringPolicyDTO> getAllPolicies() {
+        List<ScoringPolicyDTO> result = new ArrayList<>();
+        for (ScoringPolicy policy : scoringPolicyRepository.findAllByOrderByNameAsc()) {
+            result.add(toDTO(policy));
+        }
+        return result;
+    }
+
+    public ScoringPolicyDTO getPolicy(Long id) {
+        return toDTO(findPolicy(id));
+    }
+
+    public ScoringPolicyDTO getDefaultPolicy() {
+        CompiledScoringPolicy policy = defaultPolicy;
+        return ScoringPolicyDTO.builder()
+                .id(policy.getId())
+                .name(policy.getName())
+                .version(policy.getVersion())
+                .definition(policy.toDefinition())
+                .build();
+    }
+
+    public ScoringPolicyDTO createPolicy(ScoringPolicyDTO request) {
+        if (request.getName() == null || request.getName().isBlank()) {
+            throw new IllegalArgumentException("Policy name is required");
+        }
+        if (scoringPolicyRepository.existsByName(request.getName())) {
+            throw new IllegalArgumentException("Scoring policy already exists: " + request.getName());
+        }
+        CompiledScoringPolicy.compile(null, request.getName(), 1, request.getDefinition());
+
+        ScoringPolicy policy = scoringPolicyRepository.save(ScoringPolicy.builder()
+                .name(request.getName())
+                .definition(write(request.getDefinition()))
+                .version(1)
+                .build());
+        install(policy);
+        log.info("Created scoring policy {} ({})", policy.getName(), policy.getId());
+        return toDTO(policy);
+    }
+
+    /**
+     * Replaces a policy's definition. Sessions using it pick up the new version with
+     * their next batch of detections. Updates of one policy run one at a time, inside the
+     * map's {@code compute}, so concurrent ones each get their own version and the compiled
+     * policy always matches the stored one.
+     */
+    public ScoringPolicyDTO updatePolicy(Long id, ScoringPolicyDTO request) {
+        ScoringPolicy[] updated = new ScoringPolicy[1];
+        policies.compute(id, (key, current) -> {
+            ScoringPolicy policy = findPolicy(id);
+            CompiledScoringPolicy.compile(id, policy.getName(), policy.getVersion() + 1, request.getDefinition());
+
+            policy.setDefinition(write(request.getDefinition()));
+            policy.setVersion(policy.getVersion() + 1);
+            updated[0] = scoringPolicyRepository.save(policy);
+            return compile(updated[0]);
+        });
+        updateDefaultPolicy();
+        ScoringPolicy policy = updated[0];
+        log.info("Updated scoring policy {} to version {}", policy.getName(), policy.getVersion());
+        return toDTO(policy);
+    }
+
+    private ScoringPolicy findPolicy(Long id) {
+        return scoringPolicyRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Scoring policy not found: " + id));
+    }
+
+    private void install(ScoringPolicy policy) {
+        policies.put(policy.getId(), compile(policy));
+        updateDefaultPolicy();
+    }
+
+    private void updateDefaultPolicy() {
+        CompiledScoringPolicy policy = CompiledScoringPolicy.BUILT_IN;
+        if (defaultPolicyName != null && !defaultPolicyName.isBlank()) {
+            policy = policies.values().stream()
+                    .filter(candidate -> defaultPolicyName.equals(candidate.getName()))
+                    .findFirst()
+                    .orElse(CompiledScoringPolicy.BUILT_IN);
+        }
+        defaultPolicy = policy;
+    }
+
+    private CompiledScoringPolicy compile(ScoringPolicy policy) {
+        return CompiledScoringPolicy.compile(policy.getId(), policy.getName(), policy.getVersion(), read(policy.getDefinition()));
+    }
+
+    private ScoringPolicyDTO toDTO(ScoringPolicy policy) {
+        return ScoringPolicyDTO.builder()
+                .id(policy.getId())
+                .name(policy.getName())
+                .version(policy.getVersion())
+                .updatedAt(policy.getUpdatedAt())
+                .definition(read(policy.getDefinition()))
+                .build();
+    }
+
+    private String write(ScoringPolicyDTO.Definition definition) {
+        try {
+            return objectMapper.writeValueAsString(definition != null ? definition : new ScoringPolicyDTO.Definition());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid scoring policy: " + e.getMessage());
+        }
+    }
+
+    private ScoringPolicyDTO.Definition read(String definition) {
+        try {
+            return objectMapper.readValue(definition, ScoringPolicyDTO.Definition.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid stored scoring policy: " + e.getMessage());
+        }
+    }
+}
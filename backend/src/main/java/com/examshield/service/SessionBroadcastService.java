@@ -0,0 +1,394 @@
+package com.examshield.service;
+
+import com.examshield.config.SubscriberFanout;
+import com.examshield.dto.SessionDeltaDTO;
+import com.examshield.dto.SessionReplayDTO;
+import com.examshield.dto.SessionUpdateDTO;
+import com.examshield.model.AlertHistory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes live session changes to dashboards as versioned deltas on
+ * {@code /topic/session/{sessionId}}, so an invigilator only receives the rooms they
+ * watch and only what changed. Full state is served separately as a snapshot (see
+ * {@code WebSocketController#sessionSnapshot}).
+ * <p>
+ * Changes are coalesced: a ticker publishes at most one delta per session per broadcast
+ * interval, covering everything since the previous one. The interval starts at
+ * {@code interval-ms} and doubles, up to {@code max-interval-ms}, while more than
+ * {@code lag-threshold} messages wait in the subscriber buffers of
+ * {@link SubscriberFanout}, i.e. while subscribers are not keeping up; it halves again once the queue drains. Detections at
+ * or above {@code immediate-alert-level} skip the wait and flush the session at once.
+ * <p>
+ * Deltas and alerts of a session share one sequence, stamped as {@code seq}, and the last
+ * {@code replay-size} of them are kept so a client that lost its connection can resume
+ * from the last sequence it saw instead of reloading the whole session. The sequence
+ * starts over with every new ticker, so each ticker also stamps its {@code epoch}, taken
+ * from the clock when it starts and kept increasing; a resume from another epoch gets a
+ * snapshot. The same updates feed the Server-Sent Events streams of
+ * {@link SessionEventStreams}.
+ */
+@Service
+@Slf4j
+public class SessionBroadcastService {
+
+    public static final String SESSION_TOPIC = "/topic/session/";
+    public static final String ALERT_TOPIC = "/topic/alerts/";
+
+    private static final AtomicLong EPOCHS = new AtomicLong();
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final StudentScoreAggregator studentScoreAggregator;
+    private final SessionMailboxService sessionMailboxService;
+    private final SubscriberFanout subscriberFanout;
+    private final SessionEventStreams sessionEventStreams;
+    private final SessionRegistry sessionRegistry;
+    private final long baseIntervalNanos;
+    private final long maxIntervalNanos;
+    private final int lagThreshold;
+    private final AlertHistory.AlertLevel immediateAlertLevel;
+    private final int replaySize;
+
+    private final Map<Long, SessionTicker> tickers = new ConcurrentHashMap<>();
+    private volatile long intervalNanos;
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Changes of one session not yet published. Events, alerts and traces are only
+     * touched from the session's mailbox; the ticker thread reads the flags.
+     */
+    private final class SessionTicker {
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private final ReplayBuffer replay = new ReplayBuffer(replaySize);
+        private final List<PendingDetection> events = new ArrayList<>();
+        private final List<Map<String, Object>> alerts = new ArrayList<>();
+        private final List<FrameTrace> traces = new ArrayList<>();
+        private volatile CompiledScoringPolicy policy;
+        private volatile long lastFlushNanos;
+    }
+
+    /**
+     * The session's last published updates, by sequence number. Sequence numbers are
+     * assigned, buffered and published under the buffer's lock, so they reach the broker
+     * in order whichever thread publishes.
+     */
+    private static final class ReplayBuffer {
+        private final SessionUpdateDTO[] updates;
+        private final long epoch = EPOCHS.accumulateAndGet(System.currentTimeMillis(), (last, now) -> Math.max(last + 1, now));
+        private long seq;
+
+        private ReplayBuffer(int size) {
+            this.updates = new SessionUpdateDTO[size];
+        }
+
+        private long next() {
+            return ++seq;
+        }
+
+        private void add(SessionUpdateDTO update) {
+            updates[(int) (update.getSeq() % updates.length)] = update;
+        }
+
+        /**
+         * Updates after {@code afterSeq}, or {@code null} when some were evicted already or
+         * {@code afterSeq} was never issued by this buffer.
+         */
+        private List<SessionUpdateDTO> after(long afterSeq) {
+            long oldest = Math.max(1, seq - updates.length + 1);
+            if (afterSeq > seq || afterSeq + 1 < oldest) {
+                return null;
+            }
+            List<SessionUpdateDTO> result = new ArrayList<>((int) (seq - afterSeq));
+            for (long next = afterSeq + 1; next <= seq; next++) {
+                result.add(updates[(int) (next % updates.length)]);
+            }
+            return result;
+        }
+    }
+
+    public SessionBroadcastService(
+            SimpMessagingTemplate messagingTemplate,
+            StudentScoreAggregator studentScoreAggregator,
+            SessionMailboxService sessionMailboxService,
+            SubscriberFanout subscriberFanout,
+            SessionEventStreams sessionEventStreams,
+            SessionRegistry sessionRegistry,
+            @Value("${app.broadcast.interval-ms:250}") long intervalMs,
+            @Value("${app.broadcast.max-interval-ms:2000}") long maxIntervalMs,
+            @Value("${app.broadcast.lag-threshold:500}") int lagThreshold,
+            @Value("${app.broadcast.immediate-alert-level:RED}") AlertHistory.AlertLevel immediateAlertLevel,
+            @Value("${app.broadcast.replay-size:256}") int replaySize) {
+        this.messagingTemplate = messagingTemplate;
+        this.studentScoreAggregator = studentScoreAggregator;
+        this.sessionMailboxService = sessionMailboxService;
+        this.subscriberFanout = subscriberFanout;
+        this.sessionEventStreams = sessionEventStreams;
+        this.sessionRegistry = sessionRegistry;
+        this.baseIntervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.maxIntervalNanos = Math.max(baseIntervalNanos, TimeUnit.MILLISECONDS.toNanos(maxIntervalMs));
+        this.lagThreshold = lagThreshold;
+        this.immediateAlertLevel = immediateAlertLevel;
+        this.replaySize = replaySize;
+        this.intervalNanos = baseIntervalNanos;
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-broadcast");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, baseIntervalNanos, baseIntervalNanos, TimeUnit.NANOSECONDS);
+        log.info("Session broadcast ticker started (interval={}ms, maxInterval={}ms)",
+                TimeUnit.NANOSECONDS.toMillis(baseIntervalNanos), TimeUnit.NANOSECONDS.toMillis(maxIntervalNanos));
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Records what a scored batch changed, to be published with the session's next
+     * delta. Must run on the session's mailbox.
+     */
+    public void changed(Long sessionId, CompiledScoringPolicy policy, List<PendingDetection> events, List<FrameTrace> traces) {
+        SessionTicker session = getTicker(sessionId);
+        if (session == null) {
+            log.debug("Dropping changes of closed session {}", sessionId);
+            for (FrameTrace trace : traces) {
+                if (trace != null) {
+                    trace.broadcast(false);
+                }
+            }
+            return;
+        }
+        session.policy = policy;
+        session.events.addAll(events);
+        for (FrameTrace trace : traces) {
+            if (trace != null) {
+                session.traces.add(trace);
+            }
+        }
+
+        for (PendingDetection event : events) {
+            if (event.getAlertLevel() != null && event.getAlertLevel().compareTo(immediateAlertLevel) >= 0) {
+                session.lastFlushNanos = System.nanoTime();
+                flush(sessionId, session);
+                return;
+            }
+        }
+        session.dirty.set(true);
+    }
+
+    /**
+     * Alerts at or above the immediate level go out on {@code /topic/alerts/{sessionId}}
+     * right away; lower ones ride along with the session's next delta.
+     */
+    public void publishAlert(Long sessionId, String message, String level) {
+        Map<String, Object> alert = Map.of("message", message, "level", level);
+        AlertHistory.AlertLevel alertLevel = parseLevel(level);
+        SessionTicker session = getTicker(sessionId);
+        if (session == null) {
+            log.debug("Dropping alert for closed session {}", sessionId);
+            return;
+        }
+        if (alertLevel == null || alertLevel.compareTo(immediateAlertLevel) >= 0) {
+            sendAlert(sessionId, session, alert);
+            return;
+        }
+        sessionMailboxService.execute(sessionId, () -> {
+            session.alerts.add(alert);
+            session.dirty.set(true);
+        });
+    }
+
+    /**
+     * The session's ticker, started on first use; null once the session stopped taking
+     * detections, so a late change cannot restart a released ticker.
+     */
+    private SessionTicker getTicker(Long sessionId) {
+        SessionTicker session = tickers.get(sessionId);
+        if (session != null || !sessionRegistry.isAccepting(sessionId)) {
+            return session;
+        }
+        session = tickers.computeIfAbsent(sessionId, id -> new SessionTicker());
+        // publishAlert is not on the mailbox and may race with the session's release
+        if (!sessionRegistry.isAccepting(sessionId)) {
+            tickers.remove(sessionId, session);
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * Publishes whatever the session still has pending and stops ticking it.
+     */
+    public void release(Long sessionId) {
+        SessionTicker session = tickers.remove(sessionId);
+        if (session != null && session.dirty.getAndSet(false)) {
+            sessionMailboxService.call(sessionId, () -> {
+                flush(sessionId, session);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * The updates published for the session after {@code afterSeq} of {@code epoch};
+     * {@code updates} is {@code null} when they can no longer all be replayed, or the
+     * epoch is not the current one.
+     */
+    public SessionReplayDTO replay(Long sessionId, long epoch, long afterSeq) {
+        SessionTicker session = tickers.get(sessionId);
+        if (session == null) {
+            return position(sessionId);
+        }
+        synchronized (session.replay) {
+            return SessionReplayDTO.builder()
+                    .sessionId(sessionId)
+                    .epoch(session.replay.epoch)
+                    .seq(session.replay.seq)
+                    .updates(epoch == session.replay.epoch ? session.replay.after(afterSeq) : null)
+                    .build();
+        }
+    }
+
+    /**
+     * Epoch and sequence number of the session's last published update, both 0 if none,
+     * without any updates.
+     */
+    public SessionReplayDTO position(Long sessionId) {
+        SessionTicker session = tickers.get(sessionId);
+        if (session == null) {
+            return SessionReplayDTO.builder().sessionId(sessionId).epoch(0L).seq(0L).build();
+        }
+        synchronized (session.replay) {
+            return SessionReplayDTO.builder()
+                    .sessionId(sessionId)
+                    .epoch(session.replay.epoch)
+                    .seq(session.replay.seq)
+                    .build();
+        }
+    }
+
+    public long getIntervalMs() {
+        return TimeUnit.NANOSECONDS.toMillis(intervalNanos);
+    }
+
+    private void tick() {
+        try {
+            adaptInterval();
+            long now = System.nanoTime();
+            // Half a tick of slack, so scheduling jitter doesn't push a flush to the next tick
+            long due = intervalNanos - baseIntervalNanos / 2;
+            tickers.forEach((sessionId, session) -> {
+                if (now - session.lastFlushNanos >= due && session.dirty.compareAndSet(true, false)) {
+                    session.lastFlushNanos = now;
+                    sessionMailboxService.execute(sessionId, () -> flush(sessionId, session));
+                }
+            });
+        } catch (Exception e) {
+            log.error("Session broadcast tick failed: {}", e.getMessage());
+        }
+    }
+
+    private void adaptInterval() {
+        int backlog = subscriberFanout.getQueuedMessages();
+        long current = intervalNanos;
+        if (backlog > lagThreshold && current < maxIntervalNanos) {
+            intervalNanos = Math.min(current * 2, maxIntervalNanos);
+            log.debug("Outbound backlog {} messages, broadcast interval now {} ms", backlog, getIntervalMs());
+        } else if (backlog < lagThreshold / 2 && current > baseIntervalNanos) {
+            intervalNanos = Math.max(current / 2, baseIntervalNanos);
+        }
+    }
+
+    /**
+     * Runs on the session's mailbox.
+     */
+    private void flush(Long sessionId, SessionTicker session) {
+        boolean published = false;
+        SessionDeltaDTO delta = session.policy != null
+                ? studentScoreAggregator.takeDelta(sessionId, session.policy, session.events, session.alerts)
+                : null;
+        if (delta != null) {
+            published = sendDelta(sessionId, session, delta);
+        } else {
+            for (Map<String, Object> alert : session.alerts) {
+                sendAlert(sessionId, session, alert);
+            }
+        }
+
+        for (FrameTrace trace : session.traces) {
+            trace.broadcast(published);
+        }
+        session.events.clear();
+        session.alerts.clear();
+        session.traces.clear();
+    }
+
+    private boolean sendDelta(Long sessionId, SessionTicker session, SessionDeltaDTO delta) {
+        synchronized (session.replay) {
+            delta.setEpoch(session.replay.epoch);
+            delta.setSeq(session.replay.next());
+            SessionUpdateDTO update = SessionUpdateDTO.builder()
+                    .epoch(delta.getEpoch())
+                    .seq(delta.getSeq())
+                    .type(SessionUpdateDTO.UpdateType.DELTA)
+                    .delta(delta)
+                    .build();
+            session.replay.add(update);
+            sessionEventStreams.publish(sessionId, update);
+            try {
+                messagingTemplate.convertAndSend(SESSION_TOPIC + sessionId, delta);
+                return true;
+            } catch (Exception e) {
+                // Still buffered; clients see the sequence gap and resume
+                log.warn("Failed to publish delta {} for session {}: {}", delta.getSeq(), sessionId, e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    private void sendAlert(Long sessionId, SessionTicker session, Map<String, Object> alert) {
+        synchronized (session.replay) {
+            Map<String, Object> sequenced = new LinkedHashMap<>(alert);
+            long seq = session.replay.next();
+            sequenced.put("epoch", session.replay.epoch);
+            sequenced.put("seq", seq);
+            SessionUpdateDTO update = SessionUpdateDTO.builder()
+                    .epoch(session.replay.epoch)
+                    .seq(seq)
+                    .type(SessionUpdateDTO.UpdateType.ALERT)
+                    .alert(sequenced)
+                    .build();
+            session.replay.add(update);
+            sessionEventStreams.publish(sessionId, update);
+            try {
+                messagingTemplate.convertAndSend(ALERT_TOPIC + sessionId, sequenced);
+            } catch (Exception e) {
+                log.warn("Failed to publish alert {} for session {}: {}", seq, sessionId, e.getMessage());
+            }
+        }
+    }
+
+    private static AlertHistory.AlertLevel parseLevel(String level) {
+        try {
+            return level != null ? AlertHistory.AlertLevel.valueOf(level.toUpperCase()) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.examshield.service;
+
+import com.examshield.dto.SessionDeltaDTO;
+import com.examshield.dto.SessionReplayDTO;
+import com.examshield.dto.SessionSummaryDTO;
+import com.examshield.dto.SessionUpdateDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Server-Sent Events streams of live session updates, for read-only consumers such as
+ * wall displays that don't speak STOMP. A session stream carries the session's deltas and
+ * alerts with {@code epoch:seq} as event id, so a reconnecting {@code EventSource}
+ * resumes through {@code Last-Event-ID}; the overview stream carries the counters of all
+ * active sessions.
+ * <p>
+ * Streams are async requests, so an idle one holds no thread. Each has a buffer of
+ * {@code buffer-size} events drained by a {@code threads}-sized pool; a stream whose
+ * buffer fills is closed, and its client reconnects and resumes. Every
+ * {@code heartbeat-ms} idle streams get a comment, which keeps proxies from timing them
+ * out and finds connections that went away.
+ */
+@Service
+@Slf4j
+public class SessionEventStreams {
+
+    private static final int DRAIN_BATCH = 64;
+
+    private final ObjectMapper objectMapper;
+    private final int threads;
+    private final int bufferSize;
+    private final long timeoutMs;
+    private final long reconnectMs;
+
+    private final Map<Long, Set<Stream>> sessionStreams = new ConcurrentHashMap<>();
+    private final Set<Stream> overviewStreams = ConcurrentHashMap.newKeySet();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    private ThreadPoolTaskExecutor executor;
+
+    /**
+     * One event to send; {@code name} {@code null} is a heartbeat comment. Session events
+     * carry their epoch and sequence number, which also become the event id when
+     * {@code withId}.
+     */
+    private record Event(Long sessionId, long epoch, long seq, boolean withId, String name, String data) {
+    }
+
+    /**
+     * How far a catch-up reaches in a session's update stream. Epochs only grow, so an
+     * event from an earlier epoch is covered too.
+     */
+    private record Position(long epoch, long seq) {
+        private static final Position NONE = new Position(0, 0);
+
+        private boolean covers(Event event) {
+            return event.epoch() < epoch || (event.epoch() == epoch && event.seq() <= seq);
+        }
+    }
+
+    /**
+     * One connected client. Until {@code start} has queued the catch-up events, live
+     * events wait in {@code pending}.
+     */
+    private final class Stream {
+        private final Long sessionId;
+        private final SseEmitter emitter;
+        private final ArrayDeque<Event> queue = new ArrayDeque<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private List<Event> pending = new ArrayList<>();
+        private boolean retrySent;
+        private volatile boolean closed;
+
+        private Stream(Long sessionId) {
+            this.sessionId = sessionId;
+            this.emitter = new SseEmitter(timeoutMs);
+        }
+
+        /**
+         * Queues the catch-up events, then the live events that arrived meanwhile and are
+         * newer than what the catch-up covers, by session.
+         */
+        private void start(List<Event> initial, Map<Long, Position> covered) {
+            synchronized (this) {
+                queue.addAll(initial);
+                for (Event event : pending) {
+                    if (event.name() != null && !covered.getOrDefault(event.sessionId(), Position.NONE).covers(event)) {
+                        queue.add(event);
+                    }
+                }
+                pending = null;
+            }
+            schedule(this);
+        }
+
+        private void offer(Event event) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                Collection<Event> target = pending != null ? pending : queue;
+                if (target.size() < bufferSize) {
+                    target.add(event);
+                    if (pending != null) {
+                        return;
+                    }
+                } else {
+                    overflows.increment();
+                    log.debug("Event stream buffer full, closing stream of session {}", sessionId);
+                    close();
+                    return;
+                }
+            }
+            schedule(this);
+        }
+
+        private synchronized Event poll() {
+            return queue.poll();
+        }
+
+        private synchronized int size() {
+            return queue.size();
+        }
+
+        private void close() {
+            closed = true;
+            executor.execute(emitter::complete);
+        }
+    }
+
+    public SessionEventStreams(
+            ObjectMapper objectMapper,
+            @Value("${app.sse.threads:2}") int threads,
+            @Value("${app.sse.buffer-size:64}") int bufferSize,
+            @Value("${app.sse.timeout-ms:1800000}") long timeoutMs,
+            @Value("${app.sse.reconnect-ms:3000}") long reconnectMs) {
+        this.objectMapper = objectMapper;
+        this.threads = threads;
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+        this.reconnectMs = reconnectMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("sse-");
+        executor.initialize();
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (Stream stream : allStreams()) {
+            stream.emitter.complete();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Opens a stream of the session's updates as answered by {@code resume}: the missed
+     * updates, or a {@code snapshot} event when they can't all be replayed.
+     */
+    public SseEmitter openSession(Long sessionId, Supplier<SessionReplayDTO> resume) {
+        Stream stream = new Stream(sessionId);
+        register(stream);
+        try {
+            SessionReplayDTO replay = resume.get();
+            List<Event> initial = new ArrayList<>();
+            if (replay.getUpdates() == null) {
+                initial.add(new Event(sessionId, replay.getEpoch(), replay.getSeq(), true, "snapshot",
+                        toJson(replay.getSnapshot())));
+            } else {
+                for (SessionUpdateDTO update : replay.getUpdates()) {
+                    initial.add(sessionEvent(sessionId, update));
+                }
+            }
+            stream.start(initial, Map.of(sessionId, new Position(replay.getEpoch(), replay.getSeq())));
+        } catch (RuntimeException e) {
+            unregister(stream);
+            throw e;
+        }
+        return stream.emitter;
+    }
+
+    /**
+     * Opens a stream that starts with an {@code overview} event listing the active
+     * sessions, followed by {@code stats} and {@code alert} events as they happen.
+     */
+    public SseEmitter openOverview(Supplier<List<SessionSummaryDTO>> overview) {
+        Stream stream = new Stream(null);
+        register(stream);
+        try {
+            List<SessionSummaryDTO> sessions = overview.get();
+            Map<Long, Position> covered = new HashMap<>();
+            for (SessionSummaryDTO session : sessions) {
+                covered.put(session.getSessionId(), new Position(session.getEpoch(), session.getSeq()));
+            }
+            stream.start(List.of(new Event(null, 0, 0, false, "overview", toJson(sessions))), covered);
+        } catch (RuntimeException e) {
+            unregister(stream);
+            throw e;
+        }
+        return stream.emitter;
+    }
+
+    /**
+     * Hands a published update to the session's streams and the overview streams. Called
+     * in sequence order; only queues, sending happens on the stream pool.
+     */
+    public void publish(Long sessionId, SessionUpdateDTO update) {
+        Set<Stream> streams = sessionStreams.get(sessionId);
+        if (streams != null && !streams.isEmpty()) {
+            Event event = sessionEvent(sessionId, update);
+            for (Stream stream : streams) {
+                stream.offer(event);
+            }
+        }
+        if (!overviewStreams.isEmpty()) {
+            Event event = overviewEvent(sessionId, update);
+            if (event != null) {
+                for (Stream stream : overviewStreams) {
+                    stream.offer(event);
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${app.sse.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Stream stream : allStreams()) {
+            if (stream.size() == 0) {
+                stream.offer(new Event(stream.sessionId, 0, 0, false, null, null));
+            }
+        }
+    }
+
+    public int getStreamCount() {
+        return overviewStreams.size() + sessionStreams.values().stream().mapToInt(Set::size).sum();
+    }
+
+    public int getOverviewStreamCount() {
+        return overviewStreams.size();
+    }
+
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    public long getOverflowCount() {
+        return overflows.sum();
+    }
+
+    private Event sessionEvent(Long sessionId, SessionUpdateDTO update) {
+        return update.getType() == SessionUpdateDTO.UpdateType.DELTA
+                ? new Event(sessionId, update.getEpoch(), update.getSeq(), true, "delta", toJson(update.getDelta()))
+                : new Event(sessionId, update.getEpoch(), update.getSeq(), true, "alert", toJson(update.getAlert()));
+    }
+
+    /**
+     * Overview events carry only the changed counters, or the alert, tagged with the
+     * session. Deltas that changed no counter are left out.
+     */
+    private Event overviewEvent(Long sessionId, SessionUpdateDTO update) {
+        if (update.getType() == SessionUpdateDTO.UpdateType.DELTA) {
+            SessionDeltaDTO delta = update.getDelta();
+            if (delta.getStats() == null || delta.getStats().isEmpty()) {
+                return null;
+            }
+            SessionDeltaDTO stats = SessionDeltaDTO.builder()
+                    .sessionId(sessionId)
+                    .version(delta.getVersion())
+                    .epoch(delta.getEpoch())
+                    .seq(delta.getSeq())
+                    .timestamp(delta.getTimestamp())
+                    .stats(delta.getStats())
+                    .build();
+            return new Event(sessionId, update.getEpoch(), update.getSeq(), false, "stats", toJson(stats));
+        }
+        Map<String, Object> alert = new LinkedHashMap<>();
+        alert.put("sessionId", sessionId);
+        alert.putAll(update.getAlert());
+        return new Event(sessionId, update.getEpoch(), update.getSeq(), false, "alert", toJson(alert));
+    }
+
+    private void register(Stream stream) {
+        Runnable remove = () -> unregister(stream);
+        stream.emitter.onCompletion(remove);
+        stream.emitter.onTimeout(() -> {
+            remove.run();
+            stream.emitter.complete();
+        });
+        stream.emitter.onError(error -> remove.run());
+        if (stream.sessionId == null) {
+            overviewStreams.add(stream);
+        } else {
+            sessionStreams.compute(stream.sessionId, (id, streams) -> {
+                Set<Stream> result = streams != null ? streams : ConcurrentHashMap.newKeySet();
+                result.add(stream);
+                return result;
+            });
+        }
+    }
+
+    private void unregister(Stream stream) {
+        stream.closed = true;
+        if (stream.sessionId == null) {
+            overviewStreams.remove(stream);
+        } else {
+            sessionStreams.computeIfPresent(stream.sessionId, (id, streams) -> {
+                streams.remove(stream);
+                return streams.isEmpty() ? null : streams;
+            });
+        }
+    }
+
+    private List<Stream> allStreams() {
+        List<Stream> streams = new ArrayList<>(overviewStreams);
+        sessionStreams.values().forEach(streams::addAll);
+        return streams;
+    }
+
+    private void schedule(Stream stream) {
+        if (stream.scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> drain(stream));
+        }
+    }
+
+    private void drain(Stream stream) {
+        Event event;
+        int count = 0;
+        while (count < DRAIN_BATCH && !stream.closed && (event = stream.poll()) != null) {
+            try {
+                stream.emitter.send(toSse(stream, event));
+                sent.increment();
+            } catch (IOException | IllegalStateException e) {
+                // Client went away or the stream already completed; the container cleans up
+                log.debug("Event stream of session {} closed: {}", stream.sessionId, e.getMessage());
+                unregister(stream);
+                return;
+            }
+            count++;
+        }
+        stream.scheduled.set(false);
+        // Hand the thread to the next stream after a batch; reschedule if more arrived
+        if (!stream.closed && stream.size() > 0) {
+            schedule(stream);
+        }
+    }
+
+    /**
+     * Runs on the stream's drain, so {@code retrySent} needs no lock.
+     */
+    private SseEmitter.SseEventBuilder toSse(Stream stream, Event event) {
+        SseEmitter.SseEventBuilder builder = event.name() == null
+                ? SseEmitter.event().comment("heartbeat")
+                : SseEmitter.event().name(event.name()).data(event.data());
+        if (event.withId()) {
+            builder.id(event.epoch() + ":" + event.seq());
+        }
+        if (!stream.retrySent) {
+            builder.reconnectTime(reconnectMs);
+            stream.retrySent = true;
+        }
+        return builder;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize event: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.examshield.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Gives every live session its own mailbox. Tasks for one session run one at a time,
+ * in submission order, on a shared worker pool, so the session's in-memory state is
+ * only ever touched by a single thread at a time and needs no locks. Different
+ * sessions are drained in parallel.
+ * <p>
+ * Tasks must not block on another task of the same session.
+ */
+@Service
+@Slf4j
+public class SessionMailboxService {
+
+    private final ExecutorService executor;
+    private final int drainBatchSize;
+    private final Map<Long, SessionMailbox> mailboxes = new ConcurrentHashMap<>();
+
+    public SessionMailboxService(
+            @Value("${app.detection.mailbox.threads:0}") int threads,
+            @Value("${app.detection.mailbox.drain-batch-size:64}") int drainBatchSize) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "session-mailbox-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.drainBatchSize = drainBatchSize;
+        log.info("Session mailboxes running on {} threads", poolSize);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public <T> CompletableFuture<T> submit(Long sessionId, Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        mailboxes.computeIfAbsent(sessionId, SessionMailbox::new)
+                .enqueue(new MailboxTask<>(task, future, System.nanoTime()));
+        return future;
+    }
+
+    public CompletableFuture<Void> execute(Long sessionId, Runnable task) {
+        return submit(sessionId, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public <T> T call(Long sessionId, Supplier<T> task) {
+        return await(submit(sessionId, task));
+    }
+
+    /**
+     * Joins a mailbox result, rethrowing the task's own runtime exception.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drops the mailbox of an ended session once it has drained, now or after the tasks
+     * still queued have run.
+     */
+    public void close(Long sessionId) {
+        SessionMailbox mailbox = mailboxes.get(sessionId);
+        if (mailbox != null) {
+            mailbox.closed = true;
+            mailbox.removeIfDrained();
+        }
+    }
+
+    public int getQueueDepth(Long sessionId) {
+        SessionMailbox mailbox = mailboxes.get(sessionId);
+        return mailbox != null ? mailbox.depth.get() : 0;
+    }
+
+    public int getTotalQueueDepth() {
+        int total = 0;
+        for (SessionMailbox mailbox : mailboxes.values()) {
+            total += mailbox.depth.get();
+        }
+        return total;
+    }
+
+    public Map<Long, Integer> getQueueDepths() {
+        Map<Long, Integer> depths = new HashMap<>();
+        mailboxes.forEach((sessionId, mailbox) -> depths.put(sessionId, mailbox.depth.get()));
+        return depths;
+    }
+
+    public List<Map<String, Object>> getMetrics() {
+        long now = System.nanoTime();
+        List<Map<String, Object>> metrics = new ArrayList<>();
+        for (SessionMailbox mailbox : mailboxes.values()) {
+            MailboxTask<?> oldest = mailbox.queue.peek();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("sessionId", mailbox.sessionId);
+            entry.put("queueDepth", mailbox.depth.get());
+            entry.put("processed", mailbox.processed.get());
+            entry.put("lagMs", oldest != null ? TimeUnit.NANOSECONDS.toMillis(now - oldest.enqueuedAt) : 0);
+            entry.put("lastQueueWaitMs", TimeUnit.NANOSECONDS.toMillis(mailbox.lastQueueWaitNanos));
+            entry.put("maxQueueWaitMs", TimeUnit.NANOSECONDS.toMillis(mailbox.maxQueueWaitNanos));
+            metrics.add(entry);
+        }
+        return metrics;
+    }
+
+    private record MailboxTask<T>(Supplier<T> task, CompletableFuture<T> future, long enqueuedAt) {
+
+        void run() {
+            try {
+                future.complete(task.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+
+    private class SessionMailbox implements Runnable {
+
+        private final Long sessionId;
+        private final Queue<MailboxTask<?>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicLong processed = new AtomicLong();
+        private volatile long lastQueueWaitNanos;
+        private volatile long maxQueueWaitNanos;
+        private volatile boolean closed;
+
+        SessionMailbox(Long sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        void enqueue(MailboxTask<?> task) {
+            queue.offer(task);
+            depth.incrementAndGet();
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    log.warn("Mailbox for session {} rejected: executor is shut down", sessionId);
+                    MailboxTask<?> task;
+                    while ((task = queue.poll()) != null) {
+                        depth.decrementAndGet();
+                        task.future().completeExceptionally(e);
+                    }
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int drained = 0;
+            MailboxTask<?> task;
+            while (drained < drainBatchSize && (task = queue.poll()) != null) {
+                depth.decrementAndGet();
+                long wait = System.nanoTime() - task.enqueuedAt();
+                lastQueueWaitNanos = wait;
+                if (wait > maxQueueWaitNanos) {
+                    maxQueueWaitNanos = wait;
+                }
+                task.run();
+                drained++;
+            }
+            processed.addAndGet(drained);
+
+            scheduled.set(false);
+            if (!queue.isEmpty()) {
+                schedule();
+            } else if (closed) {
+                removeIfDrained();
+            }
+        }
+
+        void removeIfDrained() {
+            if (depth.get() == 0 && !scheduled.get()) {
+                mailboxes.remove(sessionId, this);
+            }
+        }
+    }
+}
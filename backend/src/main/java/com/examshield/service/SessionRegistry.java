@@ -0,0 +1,170 @@
+package com.examshield.service;
+
+import com.examshield.model.ExamSession;
+import com.examshield.repository.ExamSessionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory view of exam sessions for the ingest path: status, expected count and scoring
+ * policy, so a detection needs no session query to be validated. Entries are loaded on first use and
+ * dropped whenever {@link ExamSessionService} changes a session's lifecycle.
+ * <p>
+ * Ids of sessions that do not exist or have completed are cached too, but only for
+ * {@code app.session-registry.inactive-ttl-ms}, so frames for such ids are rejected
+ * without a query each and the cache does not keep every finished session.
+ * <p>
+ * A session being ended or deleted is {@link #close closed} first, so it stops taking
+ * detections before its in-memory state is released; per-session state elsewhere is only
+ * created for sessions that still take detections, so late frames cannot bring it back.
+ * The mark is cleared by {@link #invalidate}, after the lifecycle change commits or rolls
+ * back.
+ * <p>
+ * Hibernate proxies belong to the persistence context that created them, so the registry
+ * does not keep one; {@link #reference} hands out a fresh {@code getReferenceById} proxy,
+ * which is built from the id alone without a query.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SessionRegistry {
+
+    private final ExamSessionRepository examSessionRepository;
+
+    @Value("${app.session-registry.inactive-ttl-ms:5000}")
+    private long inactiveTtlMs;
+
+    private final Map<Long, Cached> entries = new ConcurrentHashMap<>();
+    private final Set<Long> closed = ConcurrentHashMap.newKeySet();
+
+    public record Entry(Long id, ExamSession.SessionStatus status, Integer expectedCount, Long scoringPolicyId,
+                        boolean closing) {
+
+        public boolean acceptsDetections() {
+            return !closing && (status == ExamSession.SessionStatus.PENDING || status == ExamSession.SessionStatus.ACTIVE);
+        }
+    }
+
+    /**
+     * A cache slot; {@code entry} is null for a session that does not exist. Live sessions
+     * never expire, inactive ones do at {@code expiresAt}.
+     */
+    private record Cached(Entry entry, long expiresAt) {
+        private static final long NEVER = Long.MAX_VALUE;
+
+        private boolean expired(long now) {
+            return expiresAt != NEVER && now - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * Returns the cached entry, loading it on a miss; null if the session does not exist.
+     */
+    public Entry find(Long sessionId) {
+        Cached cached = entries.get(sessionId);
+        if (cached == null || cached.expired(System.nanoTime())) {
+            Cached loaded = load(sessionId);
+            Cached existing = cached != null
+                    ? (entries.replace(sessionId, cached, loaded) ? null : entries.putIfAbsent(sessionId, loaded))
+                    : entries.putIfAbsent(sessionId, loaded);
+            cached = existing != null ? existing : loaded;
+        }
+        Entry entry = cached.entry();
+        if (entry == null) {
+            return null;
+        }
+        // Checked on every lookup, so an entry loaded while the session was being closed can't miss it
+        return closed.contains(sessionId)
+                ? new Entry(entry.id(), entry.status(), entry.expectedCount(), entry.scoringPolicyId(), true)
+                : entry;
+    }
+
+    private Cached load(Long sessionId) {
+        ExamSession session = examSessionRepository.findById(sessionId).orElse(null);
+        long inactiveUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(inactiveTtlMs);
+        if (session == null) {
+            return new Cached(null, inactiveUntil);
+        }
+        Entry entry = new Entry(session.getId(), session.getStatus(), session.getExpectedCount(), session.getScoringPolicyId(), false);
+        return new Cached(entry, session.getStatus() == ExamSession.SessionStatus.COMPLETED ? inactiveUntil : Cached.NEVER);
+    }
+
+    /**
+     * Drops inactive entries that expired without being looked up again.
+     */
+    @Scheduled(fixedDelayString = "${app.session-registry.sweep-ms:60000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        entries.values().removeIf(cached -> cached.expired(now));
+    }
+
+    public boolean isAccepting(Long sessionId) {
+        Entry entry = find(sessionId);
+        return entry != null && entry.acceptsDetections();
+    }
+
+    /**
+     * Guards the creation of per-session state.
+     */
+    public void checkAccepting(Long sessionId) {
+        if (!isAccepting(sessionId)) {
+            throw new IllegalStateException("Session " + sessionId + " is not accepting detections");
+        }
+    }
+
+    /**
+     * Stops the session taking detections until the next {@link #invalidate}.
+     */
+    public void close(Long sessionId) {
+        closed.add(sessionId);
+        log.debug("Closed session registry entry {}", sessionId);
+    }
+
+    public Entry require(Long sessionId) {
+        Entry entry = find(sessionId);
+        if (entry == null) {
+            throw new RuntimeException("Session not found: " + sessionId);
+        }
+        return entry;
+    }
+
+    public ExamSession reference(Long sessionId) {
+        require(sessionId);
+        return examSessionRepository.getReferenceById(sessionId);
+    }
+
+    /**
+     * Drops the entry now and, inside a transaction, again after commit, so a reload
+     * racing with the transaction cannot leave the old state cached. A {@link #close} mark
+     * is cleared once the transaction completes, or right away outside one.
+     */
+    public void invalidate(Long sessionId) {
+        entries.remove(sessionId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    entries.remove(sessionId);
+                    closed.remove(sessionId);
+                }
+            });
+        } else {
+            closed.remove(sessionId);
+        }
+        log.debug("Invalidated session registry entry {}", sessionId);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
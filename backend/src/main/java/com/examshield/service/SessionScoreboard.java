@@ -0,0 +1,247 @@
+package com.examshield.service;
+
+import com.examshield.dto.DetectionEventDTO;
+import com.examshield.dto.RealTimeDetectionDTO;
+import com.examshield.dto.SessionDeltaDTO;
+import com.examshield.dto.SessionSnapshotDTO;
+import com.examshield.dto.StudentScoreDTO;
+import com.examshield.model.DetectionEvent;
+import com.examshield.model.StudentScore;
+
+import java.util.*;
+
+/**
+ * In-memory score table of one live session, keyed by tracking id, together with
+ * running session counters so that {@link RealTimeDetectionDTO.SessionStats} can be
+ * produced without reloading the session's events and scores.
+ * <p>
+ * Scores decay over time (see {@link ScoreDecay}), so instead of running score totals
+ * the scoreboard keeps its students ordered by {@link LiveStudentScore#getRank()}, an
+ * ordering that decay does not change. Stats and the leaderboard walk that order and
+ * stop at the first score that has decayed to zero.
+ * <p>
+ * The scoreboard also tracks what changed since the last published
+ * {@link SessionDeltaDTO}: the students scored since then and the stats it carried.
+ * <p>
+ * A scoreboard is not thread-safe: it is only touched from its session's mailbox
+ * (see {@link SessionMailboxService}), which runs one task at a time.
+ */
+public class SessionScoreboard {
+
+    private final Long sessionId;
+    private final ScoreDecay decay;
+    private final long epochMillis = System.currentTimeMillis();
+    private final Map<String, LiveStudentScore> scores = new HashMap<>();
+    private final NavigableSet<LiveStudentScore> ranking = new TreeSet<>(
+            Comparator.comparingDouble(LiveStudentScore::getRank).reversed()
+                    .thenComparing(LiveStudentScore::getTrackingId));
+    private final Object checkpointLock = new Object();
+    private final Set<String> changedSinceDelta = new HashSet<>();
+    private RealTimeDetectionDTO.SessionStats deltaStats;
+    private long version;
+
+    private int totalDetections;
+    private int phoneCount;
+    private int earphoneCount;
+    private int watchCount;
+    private int chitCount;
+    private int textbookCount;
+    private int notebookCount;
+    private int behaviorCount;
+
+    SessionScoreboard(Long sessionId, List<StudentScore> persisted, List<Object[]> eventCounts, ScoreDecay decay) {
+        this.sessionId = sessionId;
+        this.decay = decay;
+        for (StudentScore score : persisted) {
+            LiveStudentScore live = LiveStudentScore.fromEntity(score);
+            live.updateRank(epochMillis, decay);
+            scores.put(score.getTrackingId(), live);
+            ranking.add(live);
+        }
+        for (Object[] row : eventCounts) {
+            countEvent((DetectionEvent.EventType) row[0], ((Number) row[1]).intValue());
+        }
+    }
+
+    public Long getSessionId() {
+        return sessionId;
+    }
+
+    Object getCheckpointLock() {
+        return checkpointLock;
+    }
+
+    void record(String trackingId, DetectionEvent.EventType eventType, double scoreDelta, long nowMillis) {
+        LiveStudentScore score = scores.get(trackingId);
+        if (score == null) {
+            score = new LiveStudentScore(trackingId, nowMillis);
+            scores.put(trackingId, score);
+        } else {
+            ranking.remove(score);
+        }
+
+        score.record(eventType, scoreDelta, nowMillis, decay);
+        score.updateRank(epochMillis, decay);
+        ranking.add(score);
+        changedSinceDelta.add(trackingId);
+        countEvent(eventType, 1);
+    }
+
+    void recordEvent(DetectionEvent.EventType eventType) {
+        countEvent(eventType, 1);
+    }
+
+    RealTimeDetectionDTO.SessionStats toSessionStats(CompiledScoringPolicy policy) {
+        return toSessionStats(System.currentTimeMillis(), policy);
+    }
+
+    RealTimeDetectionDTO.SessionStats toSessionStats(long nowMillis, CompiledScoringPolicy policy) {
+        double scoreSum = 0;
+        double maxScore = 0;
+        int suspiciousStudents = 0;
+        for (LiveStudentScore score : ranking) {
+            double currentScore = score.scoreAt(nowMillis, decay);
+            if (currentScore <= 0) {
+                break;
+            }
+            scoreSum += currentScore;
+            maxScore = Math.max(maxScore, currentScore);
+            if (policy.isSuspicious(currentScore)) {
+                suspiciousStudents++;
+            }
+        }
+
+        int studentCount = scores.size();
+        double avgScore = studentCount > 0 ? scoreSum / studentCount : 0;
+
+        return RealTimeDetectionDTO.SessionStats.builder()
+                .totalDetections(totalDetections)
+                .phoneCount(phoneCount)
+                .earphoneCount(earphoneCount)
+                .watchCount(watchCount)
+                .chitCount(chitCount)
+                .textbookCount(textbookCount)
+                .notebookCount(notebookCount)
+                .behaviorCount(behaviorCount)
+                .averageScore(avgScore)
+                .maxScore(maxScore)
+                .suspiciousStudents(suspiciousStudents)
+                .normalStudents(studentCount - suspiciousStudents)
+                .alertLevel(policy.sessionAlertLevel(avgScore))
+                .build();
+    }
+
+    List<StudentScoreDTO> toDTOs(CompiledScoringPolicy policy) {
+        long nowMillis = System.currentTimeMillis();
+        List<StudentScoreDTO> result = new ArrayList<>(ranking.size());
+        for (LiveStudentScore score : ranking) {
+            result.add(score.toDTO(sessionId, score.scoreAt(nowMillis, decay), policy));
+        }
+        return result;
+    }
+
+    /**
+     * The next delta, covering {@code events} and everything scored since the previous
+     * one, or {@code null} when nothing changed.
+     */
+    SessionDeltaDTO takeDelta(List<PendingDetection> events, List<Map<String, Object>> alerts, CompiledScoringPolicy policy) {
+        long nowMillis = System.currentTimeMillis();
+        RealTimeDetectionDTO.SessionStats stats = toSessionStats(nowMillis, policy);
+        Map<String, Object> changedStats = diffStats(deltaStats, stats);
+        if (events.isEmpty() && alerts.isEmpty() && changedSinceDelta.isEmpty() && changedStats.isEmpty()) {
+            return null;
+        }
+
+        List<StudentScoreDTO> changedScores = new ArrayList<>(changedSinceDelta.size());
+        for (String trackingId : changedSinceDelta) {
+            LiveStudentScore score = scores.get(trackingId);
+            changedScores.add(score.toDTO(sessionId, score.scoreAt(nowMillis, decay), policy));
+        }
+        List<DetectionEventDTO> newEvents = new ArrayList<>(events.size());
+        for (PendingDetection event : events) {
+            newEvents.add(event.toDTO());
+        }
+
+        changedSinceDelta.clear();
+        deltaStats = stats;
+        return SessionDeltaDTO.builder()
+                .sessionId(sessionId)
+                .version(++version)
+                .timestamp(nowMillis)
+                .scores(changedScores)
+                .events(newEvents)
+                .stats(changedStats)
+                .alerts(new ArrayList<>(alerts))
+                .build();
+    }
+
+    SessionSnapshotDTO toSnapshot(CompiledScoringPolicy policy) {
+        return SessionSnapshotDTO.builder()
+                .sessionId(sessionId)
+                .version(version)
+                .timestamp(System.currentTimeMillis())
+                .scores(toDTOs(policy))
+                .stats(toSessionStats(policy))
+                .build();
+    }
+
+    List<LiveStudentScore> takeDirty() {
+        List<LiveStudentScore> dirty = new ArrayList<>();
+        for (LiveStudentScore score : scores.values()) {
+            if (score.isDirty()) {
+                dirty.add(score.copy());
+                score.setDirty(false);
+            }
+        }
+        return dirty;
+    }
+
+    void markPersisted(Map<String, Long> createdIds) {
+        createdIds.forEach((trackingId, id) -> scores.get(trackingId).setId(id));
+    }
+
+    void markDirty(List<LiveStudentScore> failed) {
+        for (LiveStudentScore score : failed) {
+            scores.get(score.getTrackingId()).setDirty(true);
+        }
+    }
+
+    private static Map<String, Object> diffStats(RealTimeDetectionDTO.SessionStats before,
+                                                 RealTimeDetectionDTO.SessionStats after) {
+        RealTimeDetectionDTO.SessionStats base = before != null ? before : new RealTimeDetectionDTO.SessionStats();
+        Map<String, Object> changed = new LinkedHashMap<>();
+        putIfChanged(changed, "totalDetections", base.getTotalDetections(), after.getTotalDetections());
+        putIfChanged(changed, "phoneCount", base.getPhoneCount(), after.getPhoneCount());
+        putIfChanged(changed, "earphoneCount", base.getEarphoneCount(), after.getEarphoneCount());
+        putIfChanged(changed, "watchCount", base.getWatchCount(), after.getWatchCount());
+        putIfChanged(changed, "chitCount", base.getChitCount(), after.getChitCount());
+        putIfChanged(changed, "textbookCount", base.getTextbookCount(), after.getTextbookCount());
+        putIfChanged(changed, "notebookCount", base.getNotebookCount(), after.getNotebookCount());
+        putIfChanged(changed, "behaviorCount", base.getBehaviorCount(), after.getBehaviorCount());
+        putIfChanged(changed, "averageScore", base.getAverageScore(), after.getAverageScore());
+        putIfChanged(changed, "maxScore", base.getMaxScore(), after.getMaxScore());
+        putIfChanged(changed, "suspiciousStudents", base.getSuspiciousStudents(), after.getSuspiciousStudents());
+        putIfChanged(changed, "normalStudents", base.getNormalStudents(), after.getNormalStudents());
+        putIfChanged(changed, "alertLevel", base.getAlertLevel(), after.getAlertLevel());
+        return changed;
+    }
+
+    private static void putIfChanged(Map<String, Object> changed, String name, Object before, Object after) {
+        if (!Objects.equals(before, after)) {
+            changed.put(name, after);
+        }
+    }
+
+    private void countEvent(DetectionEvent.EventType eventType, int count) {
+        totalDetections += count;
+        switch (eventType) {
+            case PHONE_DETECTED -> phoneCount += count;
+            case EARPHONE_DETECTED -> earphoneCount += count;
+            case SMARTWATCH_DETECTED -> watchCount += count;
+            case CHIT_DETECTED -> chitCount += count;
+            case TEXTBOOK_DETECTED -> textbookCount += count;
+            case NOTEBOOK_DETECTED -> notebookCount += count;
+            default -> behaviorCount += count;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.examshield.service;
+
+import com.examshield.dto.RealTimeDetectionDTO;
+import com.examshield.dto.SessionDeltaDTO;
+import com.examshield.dto.SessionSnapshotDTO;
+import com.examshield.dto.StudentScoreDTO;
+import com.examshield.model.DetectionEvent;
+import com.examshield.model.ExamSession;
+import com.examshield.model.StudentScore;
+import com.examshield.repository.DetectionEventRepository;
+import com.examshield.repository.ExamSessionRepository;
+import com.examshield.repository.StudentScoreRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the authoritative student scores of live sessions in memory. Scores are
+ * updated on every accepted detection without touching the database and are
+ * checkpointed to {@code student_scores} periodically and when a session ends.
+ * <p>
+ * {@link #record} and {@link #recordEvent} must run on the session's mailbox; reads
+ * and checkpoints from other threads are routed through it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StudentScoreAggregator {
+
+    private final ExamSessionRepository examSessionRepository;
+    private final StudentScoreRepository studentScoreRepository;
+    private final DetectionEventRepository detectionEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionMailboxService sessionMailboxService;
+    private final ScoreDecay scoreDecay;
+    private final ScoringPolicyService scoringPolicyService;
+    private final SessionRegistry sessionRegistry;
+
+    private final Map<Long, SessionScoreboard> scoreboards = new ConcurrentHashMap<>();
+
+    public void record(Long sessionId, String trackingId, DetectionEvent.EventType eventType, double scoreDelta) {
+        getScoreboard(sessionId).record(trackingId, eventType, scoreDelta, System.currentTimeMillis());
+    }
+
+    public void recordEvent(Long sessionId, DetectionEvent.EventType eventType) {
+        getScoreboard(sessionId).recordEvent(eventType);
+    }
+
+    public RealTimeDetectionDTO.SessionStats getLiveStats(Long sessionId) {
+        SessionScoreboard scoreboard = scoreboards.get(sessionId);
+        if (scoreboard == null) {
+            return null;
+        }
+        CompiledScoringPolicy policy = scoringPolicyService.forSession(sessionId);
+        return sessionMailboxService.call(sessionId, () -> scoreboard.toSessionStats(policy));
+    }
+
+    public RealTimeDetectionDTO.SessionStats getLiveStats(Long sessionId, long nowMillis) {
+        SessionScoreboard scoreboard = scoreboards.get(sessionId);
+        if (scoreboard == null) {
+            return null;
+        }
+        CompiledScoringPolicy policy = scoringPolicyService.forSession(sessionId);
+        return sessionMailboxService.call(sessionId, () -> scoreboard.toSessionStats(nowMillis, policy));
+    }
+
+    public List<StudentScoreDTO> getLiveScores(Long sessionId) {
+        SessionScoreboard scoreboard = scoreboards.get(sessionId);
+        if (scoreboard == null) {
+            return null;
+        }
+        CompiledScoringPolicy policy = scoringPolicyService.forSession(sessionId);
+        return sessionMailboxService.call(sessionId, () -> scoreboard.toDTOs(policy));
+    }
+
+    /**
+     * Must run on the session's mailbox; {@code null} when nothing changed or the session
+     * has no live scoreboard.
+     */
+    public SessionDeltaDTO takeDelta(Long sessionId, CompiledScoringPolicy policy, List<PendingDetection> events,
+                                     List<Map<String, Object>> alerts) {
+        SessionScoreboard scoreboard = scoreboards.get(sessionId);
+        return scoreboard != null ? scoreboard.takeDelta(events, alerts, policy) : null;
+    }
+
+    public SessionSnapshotDTO getLiveSnapshot(Long sessionId) {
+        SessionScoreboard scoreboard = scoreboards.get(sessionId);
+        if (scoreboard == null) {
+            return null;
+        }
+        CompiledScoringPolicy policy = scoringPolicyService.forSession(sessionId);
+        return sessionMailboxService.call(sessionId, () -> scoreboard.toSnapshot(policy));
+    }
+
+    SessionScoreboard getScoreboard(Long sessionId) {
+        SessionScoreboard scoreboard = scoreboards.get(sessionId);
+        if (scoreboard != null) {
+            return scoreboard;
+        }
+        sessionRegistry.checkAccepting(sessionId);
+        return scoreboards.computeIfAbsent(sessionId, id -> new SessionScoreboard(id,
+                studentScoreRepository.findBySessionId(id),
+                detectionEventRepository.countBySessionIdGroupByEventType(id),
+                scoreDecay));
+    }
+
+    @Scheduled(fixedDelayString = "${app.detection.score-checkpoint-ms:5000}")
+    public void checkpointAll() {
+        for (SessionScoreboard scoreboard : scoreboards.values()) {
+            checkpoint(scoreboard);
+        }
+    }
+
+    public void checkpoint(Long sessionId) {
+        SessionScoreboard scoreboard = scoreboards.get(sessionId);
+        if (scoreboard != null) {
+            checkpoint(scoreboard);
+        }
+    }
+
+    /**
+     * Writes the session's final scores and drops its scoreboard. The scoreboard stays
+     * live if the checkpoint fails, so nothing is lost and the caller can retry. Must not
+     * run inside a transaction: the checkpoint commits on its own.
+     */
+    public void release(Long sessionId) {
+        SessionScoreboard scoreboard = scoreboards.get(sessionId);
+        if (scoreboard == null) {
+            return;
+        }
+        if (!checkpoint(scoreboard)) {
+            throw new RuntimeException("Failed to checkpoint final scores for session " + sessionId);
+        }
+        scoreboards.remove(sessionId, scoreboard);
+    }
+
+    public void discard(Long sessionId) {
+        scoreboards.remove(sessionId);
+    }
+
+    private boolean checkpoint(SessionScoreboard scoreboard) {
+        Long sessionId = scoreboard.getSessionId();
+        synchronized (scoreboard.getCheckpointLock()) {
+            List<LiveStudentScore> dirty = sessionMailboxService.call(sessionId, scoreboard::takeDirty);
+            if (dirty.isEmpty()) {
+                return true;
+            }
+
+            try {
+                Map<String, Long> createdIds = transactionTemplate.execute(
+                        status -> writeCheckpoint(sessionId, dirty));
+                sessionMailboxService.execute(sessionId, () -> scoreboard.markPersisted(createdIds));
+                log.debug("Checkpointed {} scores for session {}", dirty.size(), sessionId);
+                return true;
+            } catch (Exception e) {
+                sessionMailboxService.execute(sessionId, () -> scoreboard.markDirty(dirty));
+                log.error("Failed to checkpoint scores for session {}: {}", sessionId, e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    private Map<String, Long> writeCheckpoint(Long sessionId, List<LiveStudentScore> dirty) {
+        ExamSession session = examSessionRepository.getReferenceById(sessionId);
+        CompiledScoringPolicy policy = scoringPolicyService.forSession(sessionId);
+        long nowMillis = System.currentTimeMillis();
+        List<StudentScore> created = new ArrayList<>();
+        Map<Long, LiveStudentScore> existing = new HashMap<>();
+
+        for (LiveStudentScore score : dirty) {
+            if (score.getId() == null) {
+                StudentScore entity = StudentScore.builder().session(session).build();
+                score.copyTo(entity, nowMillis, scoreDecay, policy);
+                created.add(entity);
+            } else {
+                existing.put(score.getId(), score);
+            }
+        }
+
+        // New rows first, so their ids are allocated before this transaction reads
+        studentScoreRepository.saveAll(created);
+        for (StudentScore entity : studentScoreRepository.findAllById(existing.keySet())) {
+            existing.get(entity.getId()).copyTo(entity, nowMillis, scoreDecay, policy);
+        }
+
+        Map<String, Long> createdIds = new HashMap<>();
+        for (StudentScore entity : created) {
+            createdIds.put(entity.getTrackingId(), entity.getId());
+        }
+        return createdIds;
+    }
+}
@@ -20,7 +20,7 @@ import java.util.UUID;
 @Slf4j
 public class VideoProcessingService {
     
-    private final ExamSessionRepository examSessionRepository;
+    private final SessionRegistry sessionRegistry;
     private final ProcessingJobRepository processingJobRepository;
     
     @Value("${app.upload.directory:./uploads}")
@@ -28,8 +28,7 @@ public class VideoProcessingService {
     
     @Transactional
     public ProcessingJobDTO uploadVideo(Long sessionId, MultipartFile file) throws IOException {
-        ExamSession session = examSessionRepository.findById(sessionId)
-                .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
+        ExamSession session = sessionRegistry.reference(sessionId);
         
         String jobId = UUID.randomUUID().toString();
         
@@ -119,8 +118,7 @@ public class VideoProcessingService {
     }
     
     public ProcessingJobDTO startLiveStream(Long sessionId, String streamUrl) {
-        ExamSession session = examSessionRepository.findById(sessionId)
-                .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
+        ExamSession session = sessionRegistry.reference(sessionId);
         
         String jobId = UUID.randomUUID().toString();
         
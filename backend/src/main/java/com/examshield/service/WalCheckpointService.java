@@ -0,0 +1,139 @@
+package com.examshield.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies the SQLite write-ahead log back into the database file off the ingest path.
+ * The writer connection's automatic checkpoint is set far above what this keeps the WAL
+ * at, so it only steps in if these checkpoints stall. Passive checkpoints never block the
+ * writer; once a large WAL has been fully copied it is truncated so the file does not
+ * keep its peak size.
+ * <p>
+ * Checkpoints run on their own thread rather than the shared Spring scheduler, so a slow
+ * scheduled job elsewhere cannot hold them up.
+ */
+@Service
+@Slf4j
+public class WalCheckpointService {
+
+    private final HikariDataSource checkpointDataSource;
+    private final int truncatePages;
+    private final long intervalMs;
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong checkpoints = new AtomicLong();
+    private final AtomicLong truncations = new AtomicLong();
+    private final AtomicLong busy = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private volatile long lastNanos;
+    private volatile long maxNanos;
+    private volatile int lastWalPages;
+    private volatile int lastCheckpointedPages;
+
+    public WalCheckpointService(
+            @Qualifier("checkpointDataSource") HikariDataSource checkpointDataSource,
+            @Value("${app.datasource.wal-truncate-pages:4096}") int truncatePages,
+            @Value("${app.datasource.checkpoint-interval-ms:1000}") long intervalMs) {
+        this.checkpointDataSource = checkpointDataSource;
+        this.truncatePages = truncatePages;
+        this.intervalMs = intervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wal-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkpoint, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public void checkpoint() {
+        try (Connection connection = checkpointDataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            int[] result = run(statement, "PASSIVE");
+            if (result[0] != 0) {
+                busy.incrementAndGet();
+            }
+            if (result[1] >= truncatePages && result[1] == result[2]) {
+                run(statement, "TRUNCATE");
+                truncations.incrementAndGet();
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Keep the schedule alive: an exception would cancel all later runs
+            failures.incrementAndGet();
+            log.warn("WAL checkpoint failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        long count = checkpoints.get();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("checkpoints", count);
+        metrics.put("truncations", truncations.get());
+        metrics.put("busy", busy.get());
+        metrics.put("failures", failures.get());
+        metrics.put("lastMs", nanosToMillis(lastNanos));
+        metrics.put("maxMs", nanosToMillis(maxNanos));
+        metrics.put("avgMs", count > 0 ? nanosToMillis(totalNanos.get() / count) : 0.0);
+        metrics.put("walPages", lastWalPages);
+        metrics.put("checkpointedPages", lastCheckpointedPages);
+        return metrics;
+    }
+
+    private int[] run(Statement statement, String mode) throws SQLException {
+        long start = System.nanoTime();
+        int[] result = new int[3];
+        try (ResultSet rs = statement.executeQuery("PRAGMA wal_checkpoint(" + mode + ")")) {
+            if (rs.next()) {
+                result[0] = rs.getInt(1);
+                result[1] = rs.getInt(2);
+                result[2] = rs.getInt(3);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        checkpoints.incrementAndGet();
+        totalNanos.addAndGet(elapsed);
+        lastNanos = elapsed;
+        if (elapsed > maxNanos) {
+            maxNanos = elapsed;
+        }
+        lastWalPages = result[1];
+        lastCheckpointedPages = result[2];
+        if (elapsed > TimeUnit.MILLISECONDS.toNanos(100)) {
+            log.debug("WAL checkpoint ({}) of {} pages took {} ms", mode, result[2], nanosToMillis(elapsed));
+        }
+        return result;
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}